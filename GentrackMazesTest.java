@@ -1,10 +1,46 @@
 import org.junit.jupiter.api.Test;
+import sys.AStarSolver;
+import sys.BatchSolver;
+import sys.BinaryMazeFormat;
+import sys.BidirectionalSolver;
+import sys.BreadthFirstSolver;
+import sys.CorridorSolver;
+import sys.DistanceField;
 import sys.GentrackMaze;
+import sys.MazeGenerator;
+import sys.MazeMetrics;
+import sys.Query;
+import sys.Route;
+import sys.SolutionCache;
+import sys.SolveListener;
+import sys.SolveStats;
+import sys.WorkspaceSolver;
+import sys.TiledMaze;
+import sys.TiledRoute;
+import javax.management.JMException;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
 import java.net.URISyntaxException;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
 
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * A helper class to help with tests to simplify code execution for an invigilator.
@@ -15,45 +51,470 @@ class GentrackMazesTest {
     private static String CUSTOM_INPUT = "bin/large_input.txt";
 
     @Test
-    void testCustomInput() throws FileNotFoundException, URISyntaxException {
+    void testCustomInput() throws IOException, URISyntaxException {
         GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource(CUSTOM_INPUT).toURI()));
         assertTrue(input.solve());
         System.out.println(input.solutionToString());
     }
 
     @Test
-    void testInput() throws FileNotFoundException, URISyntaxException {
+    void testInput() throws IOException, URISyntaxException {
         GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/input.txt").toURI()));
         assertTrue(input.solve());
         System.out.println(input.solutionToString());
     }
 
     @Test
-    void testMediumInput() throws FileNotFoundException, URISyntaxException {
+    void testMediumInput() throws IOException, URISyntaxException {
         GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/medium_input.txt").toURI()));
         assertTrue(input.solve());
         System.out.println(input.solutionToString());
     }
 
     @Test
-    void testSmallInput() throws FileNotFoundException, URISyntaxException {
+    void testSmallInput() throws IOException, URISyntaxException {
         GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/small.txt").toURI()));
         assertTrue(input.solve());
         System.out.println(input.solutionToString());
     }
 
     @Test
-    void testSparseMediumInput() throws FileNotFoundException, URISyntaxException {
+    void testSparseMediumInput() throws IOException, URISyntaxException {
         GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/sparse_medium.txt").toURI()));
         assertTrue(input.solve());
         System.out.println(input.solutionToString());
     }
 
     @Test
-    void testLargeInput() throws FileNotFoundException, URISyntaxException {
+    void testLargeInput() throws IOException, URISyntaxException {
         GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
         assertTrue(input.solve());
         System.out.println(input.solutionToString());
     }
-}
 
+    @Test
+    void testStreamInput() throws IOException, URISyntaxException {
+        try (InputStream stream = new FileInputStream(new File(getClass().getClassLoader().getResource("bin/medium_input.txt").toURI()))) {
+            GentrackMaze input = new GentrackMaze(stream);
+            assertTrue(input.solve());
+            System.out.println(input.solutionToString());
+        }
+        // A non-blocking channel is rejected rather than polled.
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            assertThrows(IllegalBlockingModeException.class, () -> new GentrackMaze(pipe.source()));
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+        // A maze with more cells than an int can index is refused before anything is allocated for it.
+        byte[] huge = "50000 50000\n1 1\n3 3\n".getBytes(StandardCharsets.US_ASCII);
+        IOException tooLarge = assertThrows(IOException.class, () -> new GentrackMaze(new ByteArrayInputStream(huge)));
+        assertTrue(tooLarge.getMessage().contains("TiledMaze"));
+    }
+
+    @Test
+    void testShortestRouteSolvers() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
+        assertTrue(input.solve(new BreadthFirstSolver()));
+        int shortest = input.getRoute().length();
+        assertTrue(input.solve(new AStarSolver()));
+        assertEquals(shortest, input.getRoute().length());
+        assertTrue(input.solve(new BidirectionalSolver()));
+        assertEquals(shortest, input.getRoute().length());
+        System.out.println(input.solutionToString());
+    }
+
+    @Test
+    void testSolveAll() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/sparse_medium.txt").toURI()));
+        List<Query> queries = new ArrayList<>();
+        for (int yCoord = 1; yCoord < 20; yCoord++) {
+            queries.add(new Query(1, 1, 20 - yCoord, yCoord));
+        }
+        // A query into the surrounding wall has no route.
+        queries.add(new Query(1, 1, 0, 0));
+        List<Route> routes = input.solveAll(queries, new BreadthFirstSolver());
+        assertEquals(queries.size(), routes.size());
+        for (int i = 0; i < queries.size() - 1; i++) {
+            Query query = queries.get(i);
+            assertTrue(routes.get(i).isFound());
+            assertEquals(query.getEndX() - 1 + query.getEndY() - 1, routes.get(i).length());
+        }
+        assertFalse(routes.get(queries.size() - 1).isFound());
+    }
+
+    @Test
+    void testCorridorSolver() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
+        assertTrue(input.solve(new BreadthFirstSolver()));
+        Route cellRoute = input.getRoute();
+        assertTrue(input.solve(new CorridorSolver(input.getCorridorGraph())));
+        Route corridorRoute = input.getRoute();
+        assertEquals(cellRoute.length(), corridorRoute.length());
+        assertEquals(cellRoute.length() + 1, corridorRoute.cells().length);
+        // Corridors are expanded once each rather than once per cell.
+        assertTrue(corridorRoute.nodesExpanded() * 10 < cellRoute.nodesExpanded());
+        System.out.println(input.solutionToString());
+    }
+
+    @Test
+    void testIsReachable() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/medium_input.txt").toURI()));
+        assertTrue(input.isReachable(1, 1, 21, 19));
+        // Walls are never reachable.
+        assertFalse(input.isReachable(1, 1, 0, 0));
+        assertEquals(1, input.getComponentIndex().componentCount());
+        assertTrue(input.solve());
+    }
+
+    @Test
+    void testWriteSolution() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
+        assertTrue(input.solve());
+        String solution = input.solutionToString();
+        StringWriter writer = new StringWriter();
+        input.writeSolution(writer);
+        assertEquals(solution, writer.toString());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        input.writeSolution(stream);
+        assertEquals(solution, new String(stream.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testBinaryFormat() throws IOException, URISyntaxException {
+        File text = new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI());
+        File binary = Files.createTempFile("large_input", ".gtmz").toFile();
+        try {
+            BinaryMazeFormat.convert(text, binary);
+            // One bit per cell plus the header.
+            assertTrue(binary.length() * 8 < text.length());
+            GentrackMaze input = new GentrackMaze(text);
+            GentrackMaze reopened = GentrackMaze.openBinary(binary);
+            assertEquals(input.toString(), reopened.toString());
+            assertTrue(input.solve());
+            assertTrue(reopened.solve());
+            assertEquals(input.solutionToString(), reopened.solutionToString());
+        } finally {
+            binary.delete();
+        }
+    }
+
+    @Test
+    void testTiledMaze() throws IOException, URISyntaxException {
+        File text = new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI());
+        File binary = Files.createTempFile("large_input", ".gtmz").toFile();
+        try {
+            BinaryMazeFormat.convert(text, binary);
+            GentrackMaze input = new GentrackMaze(text);
+            assertTrue(input.solve(new BreadthFirstSolver()));
+            // A single band is solved with the BreadthFirstSolver alone.
+            try (TiledMaze whole = TiledMaze.open(binary, input.getHeight())) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                whole.writeSolution(whole.solve(), out);
+                assertEquals(input.solutionToString(), out.toString(StandardCharsets.US_ASCII.name()));
+            }
+            // Narrow bands route through the border summaries, crossing as few bands as possible.
+            try (TiledMaze banded = TiledMaze.open(binary, 7)) {
+                TiledRoute route = banded.solve();
+                assertTrue(route.isFound());
+                assertTrue(route.legCount() > 1);
+                assertTrue(route.length() >= input.getRoute().length());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                banded.writeSolution(route, out);
+                String solution = out.toString(StandardCharsets.US_ASCII.name());
+                assertEquals(input.solutionToString().length(), solution.length());
+                assertEquals(route.length() - 1, solution.chars().filter(symbol -> symbol == 'X').count());
+            }
+        } finally {
+            binary.delete();
+        }
+        // A route which was not found still marks its start and end.
+        File unsolvable = Files.createTempFile("unsolvable", ".txt").toFile();
+        File unsolvableBinary = Files.createTempFile("unsolvable", ".gtmz").toFile();
+        try {
+            new MazeGenerator(3).write(MazeGenerator.Topology.UNSOLVABLE, 21, 21, unsolvable);
+            BinaryMazeFormat.convert(unsolvable, unsolvableBinary);
+            try (TiledMaze banded = TiledMaze.open(unsolvableBinary, 4)) {
+                TiledRoute route = banded.solve();
+                assertFalse(route.isFound());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                banded.writeSolution(route, out);
+                String solution = out.toString(StandardCharsets.US_ASCII.name());
+                assertEquals(1, solution.chars().filter(symbol -> symbol == 'S').count());
+                assertEquals(1, solution.chars().filter(symbol -> symbol == 'E').count());
+                assertEquals(0, solution.chars().filter(symbol -> symbol == 'X').count());
+            }
+        } finally {
+            unsolvable.delete();
+            unsolvableBinary.delete();
+        }
+    }
+
+    @Test
+    void testIncrementalSolve() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
+        assertTrue(input.solve(new BreadthFirstSolver()));
+        int[] shortest = input.getRoute().cells();
+        int blocked = shortest[shortest.length / 2];
+        int x = blocked % input.getWidth();
+        int y = blocked / input.getWidth();
+        // Wall over the middle of the shortest route, then open it again.
+        input.setWall(x, y);
+        assertEquals(null, input.getRoute());
+        boolean solved = input.solve();
+        Route scratch = input.solve(new Query(input.getStartX(), input.getStartY(), input.getEndX(), input.getEndY()), new BreadthFirstSolver());
+        assertEquals(scratch.isFound(), solved);
+        assertEquals(scratch.length(), input.getRoute().length());
+        input.setPassage(x, y);
+        assertTrue(input.solve());
+        assertEquals(shortest.length - 1, input.getRoute().length());
+        // Repairing a small edit expands far fewer passages than searching from scratch.
+        assertTrue(input.getRoute().nodesExpanded() < scratch.nodesExpanded());
+        assertFalse(input.solutionToString().isEmpty());
+        input.releasePlanner();
+        assertTrue(input.solve());
+
+        // A 9x9 serpentine runs along rows 1, 3, 5 and 7 (joined at x = 7, 1 and 7) from (1, 1) to (1, 7), 30 steps.
+        StringWriter text = new StringWriter();
+        new MazeGenerator(0).write(MazeGenerator.Topology.SERPENTINE, 9, 9, text);
+        GentrackMaze serpentine = new GentrackMaze(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(serpentine.solve(new BreadthFirstSolver()));
+        assertEquals(30, serpentine.getRoute().length());
+        // A shortcut from row 1 down to row 3 at x = 1 skips rows 1 and 3: 4 steps down, then 6 + 2 + 6 along rows 5 and 7.
+        serpentine.setPassage(1, 2);
+        assertTrue(serpentine.solve());
+        assertEquals(18, serpentine.getRoute().length());
+        // Walling row 5, which every route runs along, leaves no route at all.
+        serpentine.setWall(4, 5);
+        assertFalse(serpentine.solve());
+        assertFalse(serpentine.getRoute().isFound());
+        serpentine.setPassage(4, 5);
+        assertTrue(serpentine.solve());
+        assertEquals(18, serpentine.getRoute().length());
+        serpentine.setWall(1, 2);
+        assertTrue(serpentine.solve());
+        assertEquals(30, serpentine.getRoute().length());
+        // Walling over the end is not solvable either.
+        serpentine.setWall(1, 7);
+        assertFalse(serpentine.solve());
+    }
+
+    @Test
+    void testParallelParse() throws IOException, URISyntaxException {
+        File file = new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI());
+        GentrackMaze input = new GentrackMaze(file);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // The file is read in several chunks at once and must load the same maze.
+            GentrackMaze parallel = GentrackMaze.openParallel(file, pool);
+            assertEquals(input.toString(), parallel.toString());
+            assertTrue(input.solve());
+            assertTrue(parallel.solve());
+            assertEquals(input.solutionToString(), parallel.solutionToString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchSolver() throws IOException, URISyntaxException, InterruptedException {
+        File fixtures = new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()).getParentFile();
+        File output = Files.createTempDirectory("solutions").toFile();
+        // One thread and one queued maze per stage, so stages fall back on running the next stage themselves.
+        try (BatchSolver batch = new BatchSolver(output, 1, 1, 1, 1)) {
+            int submitted = batch.submitDirectory(fixtures);
+            batch.awaitCompletion();
+            assertEquals(5, submitted);
+            assertEquals(0, batch.getFailures().size());
+            assertEquals(submitted, batch.getSolvedCount() + batch.getUnsolvedCount());
+            for (File file : fixtures.listFiles()) {
+                GentrackMaze maze = new GentrackMaze(file);
+                maze.solve();
+                assertEquals(maze.solutionToString(), new String(Files.readAllBytes(batch.solutionFile(file).toPath()), StandardCharsets.US_ASCII));
+            }
+            // Mazes can also be fed through a queue.
+            BlockingQueue<File> queue = new LinkedBlockingQueue<>();
+            queue.add(new File(fixtures, "small.txt"));
+            queue.add(new File(fixtures, "missing.txt"));
+            queue.add(BatchSolver.END_OF_INPUT);
+            batch.ingest(queue);
+            batch.awaitCompletion();
+            assertEquals(submitted + 1, batch.getSolvedCount() + batch.getUnsolvedCount());
+            assertTrue(batch.getFailures().containsKey(new File(fixtures, "missing.txt")));
+            // An unsolvable maze is written without a route rather than failing (or holding up awaitCompletion).
+            File unsolvable = File.createTempFile("unsolvable", ".txt");
+            try {
+                new MazeGenerator(3).write(MazeGenerator.Topology.UNSOLVABLE, 21, 21, unsolvable);
+                long unsolved = batch.getUnsolvedCount();
+                batch.submit(unsolvable);
+                batch.awaitCompletion();
+                assertEquals(unsolved + 1, batch.getUnsolvedCount());
+                assertFalse(batch.getFailures().containsKey(unsolvable));
+                String written = new String(Files.readAllBytes(batch.solutionFile(unsolvable).toPath()), StandardCharsets.US_ASCII);
+                assertTrue(written.indexOf('S') >= 0 && written.indexOf('E') >= 0);
+                assertEquals(-1, written.indexOf('X'));
+            } finally {
+                unsolvable.delete();
+            }
+        } finally {
+            for (File solution : output.listFiles()) {
+                solution.delete();
+            }
+            output.delete();
+        }
+    }
+
+    @Test
+    void testSolutionCache() throws IOException, URISyntaxException {
+        File file = new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI());
+        GentrackMaze input = new GentrackMaze(file);
+        assertTrue(input.solve());
+        SolutionCache cache = new SolutionCache(1 << 20);
+        Route first = cache.solve(file);
+        Route repeated = cache.solve(file);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        // The repeated route is expanded from the cache without searching.
+        assertEquals(0, repeated.nodesExpanded());
+        assertTrue(Arrays.equals(input.getRoute().cells(), first.cells()));
+        assertTrue(Arrays.equals(first.cells(), repeated.cells()));
+        // A repeated query of the same file is answered from the hash of its bytes, without parsing it.
+        long[] parses = {0};
+        SolveListener counter = new SolveListener() {
+            @Override
+            public void onParse(long nanos) {
+                parses[0]++;
+            }
+
+            @Override
+            public void onSolve(SolveStats stats) {
+            }
+        };
+        GentrackMaze.addListener(counter);
+        try {
+            cache.solve(file);
+        } finally {
+            GentrackMaze.removeListener(counter);
+        }
+        assertEquals(0, parses[0]);
+        assertEquals(2, cache.getHitCount());
+        // The key is the parsed maze, so the same maze written with different line endings is a hit too.
+        File crlf = File.createTempFile("crlf", ".txt");
+        try {
+            String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+            Files.write(crlf.toPath(), text.replace("\n", "\r\n").getBytes(StandardCharsets.US_ASCII));
+            assertTrue(Arrays.equals(first.cells(), cache.solve(crlf).cells()));
+            assertEquals(3, cache.getHitCount());
+            // Once parsed, the copy is known by its bytes too.
+            cache.solve(crlf);
+            assertEquals(4, cache.getHitCount());
+        } finally {
+            crlf.delete();
+        }
+        Query query = new Query(input.getEndX(), input.getEndY(), input.getStartX(), input.getStartY());
+        assertEquals(first.length(), cache.solve(file, query).length());
+        assertEquals(2, cache.getMissCount());
+        // A cache too small for two routes evicts the least recently used.
+        SolutionCache small = new SolutionCache(cache.byteSize() / 2 + 1);
+        small.solve(file);
+        small.solve(file, query);
+        assertEquals(1, small.size());
+        assertEquals(1, small.getEvictionCount());
+    }
+
+    @Test
+    void testWorkspaceSolver() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
+        assertTrue(input.solve(new BreadthFirstSolver()));
+        Route shortest = input.getRoute();
+        // Reused workspaces give the same answer search after search.
+        for (int repeat = 0; repeat < 3; repeat++) {
+            assertEquals(shortest.length(), input.distance(input.getStartX(), input.getStartY(), input.getEndX(), input.getEndY()));
+        }
+        assertTrue(input.solve(new WorkspaceSolver()));
+        assertTrue(Arrays.equals(shortest.cells(), input.getRoute().cells()));
+        int[] cells = new int[shortest.length() + 1];
+        int start = input.getGrid().index(input.getStartX(), input.getStartY());
+        int end = input.getGrid().index(input.getEndX(), input.getEndY());
+        assertEquals(shortest.length(), new WorkspaceSolver().route(input.getGrid(), start, end, cells));
+        assertTrue(Arrays.equals(shortest.cells(), cells));
+        assertEquals(-1, input.distance(0, 0, input.getEndX(), input.getEndY()));
+    }
+
+    @Test
+    void testMazeGenerator() throws IOException {
+        for (MazeGenerator.Topology topology : MazeGenerator.Topology.values()) {
+            StringWriter text = new StringWriter();
+            new MazeGenerator(7).write(topology, 64, 41, text);
+            StringWriter again = new StringWriter();
+            new MazeGenerator(7).write(topology, 64, 41, again);
+            // The same seed writes the same maze.
+            assertEquals(text.toString(), again.toString());
+            GentrackMaze maze = new GentrackMaze(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.US_ASCII)));
+            assertEquals(64, maze.getWidth());
+            assertEquals(41, maze.getHeight());
+            assertEquals(topology != MazeGenerator.Topology.UNSOLVABLE, maze.solve(new BreadthFirstSolver()));
+            if (topology == MazeGenerator.Topology.ROOMS) {
+                // The first open room (eight rooms a side) is passage all the way through, with no pillars left between its rooms.
+                for (int y = 1; y < 16; y++) {
+                    for (int x = 1; x < 16; x++) {
+                        assertTrue(x + "," + y, maze.getGrid().isPassage(x, y));
+                    }
+                }
+                assertFalse(maze.getGrid().isPassage(16, 2));
+            }
+        }
+    }
+
+    @Test
+    void testDistanceField() throws IOException, URISyntaxException {
+        GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/sparse_medium.txt").toURI()));
+        DistanceField fromStart = input.distanceField(input.getStartX(), input.getStartY());
+        assertTrue(input.solve(new BreadthFirstSolver()));
+        assertEquals(input.getRoute().length(), fromStart.distance(input.getEndX(), input.getEndY()));
+        Route route = fromStart.routeTo(input.getEndX(), input.getEndY());
+        assertEquals(input.getRoute().length(), route.length());
+        assertEquals(input.getGrid().index(input.getStartX(), input.getStartY()), route.cells()[0]);
+        // With both ends as sources every passage is as near as the nearer of the two.
+        DistanceField fromEither = input.distanceField(new int[]{input.getStartX(), input.getEndX()}, new int[]{input.getStartY(), input.getEndY()});
+        assertEquals(0, fromEither.distance(input.getEndX(), input.getEndY()));
+        assertEquals(Math.min(fromStart.distance(9, 9), input.distance(input.getEndX(), input.getEndY(), 9, 9)), fromEither.distance(9, 9));
+        assertEquals(-1, fromStart.distance(0, 0));
+        assertFalse(fromStart.routeTo(0, 0).isFound());
+        int[][] matrix = input.distanceMatrix(new int[]{input.getStartX(), input.getEndX()}, new int[]{input.getStartY(), input.getEndY()});
+        assertEquals(route.length(), matrix[0][1]);
+        assertEquals(route.length(), matrix[1][0]);
+        File saved = File.createTempFile("distance", ".gtdf");
+        try {
+            fromStart.write(saved);
+            DistanceField reused = input.readDistanceField(saved);
+            assertTrue(Arrays.equals(route.cells(), reused.routeTo(input.getEndX(), input.getEndY()).cells()));
+        } finally {
+            saved.delete();
+        }
+    }
+
+    @Test
+    void testSolveStats() throws IOException, URISyntaxException, JMException {
+        MazeMetrics metrics = MazeMetrics.install();
+        try {
+            GentrackMaze input = new GentrackMaze(new File(getClass().getClassLoader().getResource("bin/large_input.txt").toURI()));
+            assertTrue(input.solve(new BreadthFirstSolver()));
+            input.solutionToString();
+            SolveStats stats = input.getStats();
+            assertEquals(input.getRoute().length(), stats.getPathLength());
+            assertEquals(input.getRoute().nodesExpanded(), stats.getNodesExpanded());
+            assertTrue(stats.getPeakFrontier() > 0);
+            assertTrue(stats.getParseNanos() > 0);
+            assertTrue(stats.getRenderNanos() >= 0);
+            assertEquals(1, metrics.getParseCount());
+            assertEquals(1, metrics.getSolvedCount());
+            assertEquals(1, metrics.getRenderCount());
+            assertEquals(stats.getNodesExpanded(), metrics.getNodesExpandedTotal());
+        } finally {
+            metrics.uninstall();
+        }
+    }
+}
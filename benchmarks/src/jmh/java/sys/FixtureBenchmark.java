@@ -0,0 +1,81 @@
+package sys;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the GentrackMaze constructor (and GentrackMaze.openBinary), solve() and solutionToString() separately over the bin/ fixtures.
+ * solveWorkspace measures the allocation-free GentrackMaze.distance, which should report no allocation per operation.
+ * Throughput and sample time (latency percentiles) are both reported, allocation rates come from the gc profiler configured in benchmarks/build.gradle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FixtureBenchmark {
+
+    @Param({"bin/small.txt", "bin/medium_input.txt", "bin/sparse_medium.txt", "bin/large_input.txt"})
+    public String fixture;
+
+    private File file;
+    private File binaryFile;
+    private GentrackMaze maze;
+    private GentrackMaze solved;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = MazeFixtures.fixture(fixture);
+        maze = new GentrackMaze(file);
+        solved = new GentrackMaze(file);
+        binaryFile = File.createTempFile("maze", ".gtmz");
+        binaryFile.deleteOnExit();
+        maze.writeBinary(binaryFile);
+        if (!solved.solve()) {
+            throw new IllegalStateException(fixture + " has no solution");
+        }
+    }
+
+    @Benchmark
+    public GentrackMaze parse() throws IOException {
+        return new GentrackMaze(file);
+    }
+
+    @Benchmark
+    public GentrackMaze parseBinary() throws IOException {
+        return GentrackMaze.openBinary(binaryFile);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        return maze.solve();
+    }
+
+    @Benchmark
+    public int solveWorkspace() {
+        return maze.distance(maze.getStartX(), maze.getStartY(), maze.getEndX(), maze.getEndY());
+    }
+
+    @Benchmark
+    public String render() {
+        return solved.solutionToString();
+    }
+
+    @Benchmark
+    public void renderStream() throws IOException {
+        solved.writeSolution(OutputStream.nullOutputStream());
+    }
+}
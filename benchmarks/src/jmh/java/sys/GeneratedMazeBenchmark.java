@@ -0,0 +1,86 @@
+package sys;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the GentrackMaze constructor (and GentrackMaze.openParallel and openBinary), solve() and solutionToString() separately over generated mazes from 100x100 up to 5k x 5k (or 20k x 20k on request).
+ * Mazes are perfect mazes unless another MazeGenerator topology is picked with, for example, -Pjmh.topology=PERFECT,SERPENTINE,UNSOLVABLE (unsolvable mazes render without a route).
+ * The 20k maze takes minutes to generate and several GB of heap to render, so it is left out of a default run. Opt in with -Pjmh.size=20000
+ * (which also raises the heap of the forked JVM, see benchmarks/build.gradle).
+ * Throughput and sample time (latency percentiles) are both reported, allocation rates come from the gc profiler configured in benchmarks/build.gradle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 2)
+public class GeneratedMazeBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    @Param({"PERFECT"})
+    public MazeGenerator.Topology topology;
+
+    private File file;
+    private File binaryFile;
+    private GentrackMaze maze;
+    private GentrackMaze solved;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = MazeFixtures.generated(topology, size);
+        maze = new GentrackMaze(file);
+        solved = new GentrackMaze(file);
+        binaryFile = File.createTempFile("maze", ".gtmz");
+        binaryFile.deleteOnExit();
+        maze.writeBinary(binaryFile);
+        if (!solved.solve() && topology != MazeGenerator.Topology.UNSOLVABLE) {
+            throw new IllegalStateException(file + " has no solution");
+        }
+    }
+
+    @Benchmark
+    public GentrackMaze parse() throws IOException {
+        return new GentrackMaze(file);
+    }
+
+    @Benchmark
+    public GentrackMaze parseParallel() throws IOException {
+        return GentrackMaze.openParallel(file);
+    }
+
+    @Benchmark
+    public GentrackMaze parseBinary() throws IOException {
+        return GentrackMaze.openBinary(binaryFile);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        return maze.solve();
+    }
+
+    @Benchmark
+    public String render() {
+        return solved.solutionToString();
+    }
+
+    @Benchmark
+    public void renderStream() throws IOException {
+        solved.writeSolution(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,50 @@
+package sys;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+/**
+ * Locates the bin/ fixtures and generates larger GentrackMaze files for the benchmarks.
+ */
+final class MazeFixtures {
+    // Generated mazes are kept between runs (a 20k by 20k maze is roughly 800MB of text).
+    private static final Path GENERATED = Paths.get(System.getProperty("java.io.tmpdir"), "gentrack-mazes");
+
+    private MazeFixtures() {
+    }
+
+    /**
+     * @param name A fixture path relative to the repository root, e.g. bin/large_input.txt.
+     * @return Returns the fixture file.
+     */
+    static File fixture(String name) {
+        return new File(System.getProperty("gentrack.root", "."), name);
+    }
+
+    /**
+     * Returns a generated maze of (roughly) the given size, generating it on first use.
+     * Mazes are written by the MazeGenerator, which only holds a row or two in memory, so arbitrarily large mazes can be written.
+     *
+     * @param topology The shape of the maze.
+     * @param size     The width and height of the maze (rounded up to an odd number so it is bounded by walls).
+     * @return Returns the maze file.
+     * @throws IOException Throws an IO exception if the maze cannot be written.
+     */
+    static synchronized File generated(MazeGenerator.Topology topology, int size) throws IOException {
+        int sides = size | 1;
+        String name = topology.name().toLowerCase(Locale.ROOT) + "-" + sides;
+        Path maze = GENERATED.resolve(name + ".txt");
+        if (!Files.exists(maze)) {
+            Files.createDirectories(GENERATED);
+            Path partial = Files.createTempFile(GENERATED, name, ".partial");
+            new MazeGenerator(sides).write(topology, sides, sides, partial.toFile());
+            Files.move(partial, maze, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return maze.toFile();
+    }
+}
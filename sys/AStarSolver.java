@@ -0,0 +1,103 @@
+package sys;
+
+import java.util.Arrays;
+
+/**
+ * <p>The AStarSolver expands passages in order of their estimated route length {@code f = g + h}, where g is the number of steps from the start
+ * and h is the Manhattan distance to the end.
+ * </p>
+ * <p>
+ * On a grid every step changes the Manhattan distance by exactly one, so f either stays the same or grows by two.
+ * The open set can therefore be held as two buckets (passages at the current f, and passages at f + 2) instead of a priority queue.
+ * The current bucket is a stack, which breaks ties towards the most recently discovered passages and heads straight for the end on open mazes.
+ * </p>
+ * <p>
+ * A passage may be discovered more than once with different signs, so frontier entries carry their sign with them and a passage is only flagged as seen (and given its sign) when it is first expanded.
+ * As the heuristic is consistent, the first expansion of a passage is by a shortest route.
+ * </p>
+ */
+public final class AStarSolver implements MazeSolver {
+    // Frontier entries pack the cell index with the direction of its sign in the lowest two bits.
+    private static final int SIGN_BITS = 2;
+    // The start of the search has no sign, which is recorded in the bit above the direction.
+    private static final long NO_SIGN = 1L << SIGN_BITS;
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        assert grid.isPassage(start);
+        assert grid.isPassage(end);
+        final int endX = grid.xOf(end);
+        final int endY = grid.yOf(end);
+        Signposts signposts = new Signposts(grid);
+        LongStack current = new LongStack();
+        LongStack next = new LongStack();
+        current.push(((long) start << (SIGN_BITS + 1)) | NO_SIGN);
+        long expanded = 0;
+        int peakFrontier = 1;
+        while (!current.isEmpty() || !next.isEmpty()) {
+            if (current.isEmpty()) {
+                // Move on to the next bucket.
+                LongStack swap = current;
+                current = next;
+                next = swap;
+            }
+            long entry = current.pop();
+            int cell = (int) (entry >>> (SIGN_BITS + 1));
+            if (signposts.isSeen(cell)) {
+                continue;
+            }
+            if ((entry & NO_SIGN) != 0) {
+                signposts.markSeen(cell);
+            } else {
+                signposts.setSign(cell, (int) (entry & 3));
+            }
+            expanded++;
+            if (cell == end) {
+                return new Route(signposts.trace(start, end), expanded, peakFrontier);
+            }
+            int distance = Math.abs(grid.xOf(cell) - endX) + Math.abs(grid.yOf(cell) - endY);
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int neighbour = grid.passageNeighbor(cell, direction);
+                if (neighbour != MazeGrid.NONE && !signposts.isSeen(neighbour)) {
+                    long neighbourEntry = ((long) neighbour << (SIGN_BITS + 1)) | MazeGrid.opposite(direction);
+                    // Moving closer to the end keeps f the same, moving away grows it by two.
+                    int neighbourDistance = Math.abs(grid.xOf(neighbour) - endX) + Math.abs(grid.yOf(neighbour) - endY);
+                    if (neighbourDistance < distance) {
+                        current.push(neighbourEntry);
+                    } else {
+                        next.push(neighbourEntry);
+                    }
+                    peakFrontier = Math.max(peakFrontier, current.size() + next.size());
+                }
+            }
+        }
+        return Route.notFound(expanded, peakFrontier);
+    }
+
+    /**
+     * A growable stack of primitive longs for frontier entries.
+     */
+    private static final class LongStack {
+        private long[] elements = new long[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void push(long value) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size << 1);
+            }
+            elements[size++] = value;
+        }
+
+        long pop() {
+            return elements[--size];
+        }
+    }
+}
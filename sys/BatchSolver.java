@@ -0,0 +1,361 @@
+package sys;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The BatchSolver works through many GentrackMaze files, writing the solution of each {@code <name>.txt} to {@code <name>.solution.txt} in an output directory.
+ * Each maze passes through three stages, parse, solve and write, and each stage runs on its own pool of threads so that the file reads and writes of some mazes
+ * overlap with the searches of others rather than every maze being run end to end in turn.
+ * </p>
+ * <p>
+ * Every pool has a bounded queue. When the queue of the next stage is full a stage runs the next stage of its maze itself rather than queueing it,
+ * which slows the stage down until the next one catches up. Backpressure therefore reaches all the way back to whatever submits the mazes,
+ * and no more than a few queues' worth of mazes are ever held on the heap at once.
+ * </p>
+ * <p>
+ * Mazes are taken from a directory (once, or as files arrive, see watch) or from a queue (see ingest). Nothing outside of the JVM is needed.
+ * </p>
+ */
+public final class BatchSolver implements Closeable {
+    // Put on an ingest queue to mark that no more mazes will follow.
+    public static final File END_OF_INPUT = new File("");
+    private static final String MAZE_SUFFIX = ".txt";
+    private static final String SOLUTION_SUFFIX = ".solution.txt";
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    private final File outputDirectory;
+    private final ThreadPoolExecutor parsers;
+    private final ThreadPoolExecutor solvers;
+    private final ThreadPoolExecutor writers;
+    // Files submitted by watch and still in the pipeline, so a file is not solved twice when it is both listed and reported as created.
+    private final Set<Path> watched = ConcurrentHashMap.newKeySet();
+    private final Map<File, Throwable> failures = new ConcurrentHashMap<>();
+    private final AtomicLong solvedCount = new AtomicLong();
+    private final AtomicLong unsolvedCount = new AtomicLong();
+    // Mazes submitted which have not yet been written (or failed), guarded by this.
+    private long pending;
+
+    /**
+     * BatchSolver constructor using two threads each to parse and write, a thread per processor to solve, and queues of 64 mazes.
+     *
+     * @param outputDirectory The directory to write solutions to (created if it does not exist).
+     */
+    public BatchSolver(File outputDirectory) {
+        this(outputDirectory, 2, Runtime.getRuntime().availableProcessors(), 2, 64);
+    }
+
+    /**
+     * BatchSolver constructor.
+     *
+     * @param outputDirectory The directory to write solutions to (created if it does not exist).
+     * @param parseThreads    The number of threads reading and parsing maze files.
+     * @param solveThreads    The number of threads solving mazes.
+     * @param writeThreads    The number of threads rendering and writing solutions.
+     * @param queueCapacity   The number of mazes each stage may hold waiting for a thread.
+     */
+    public BatchSolver(File outputDirectory, int parseThreads, int solveThreads, int writeThreads, int queueCapacity) {
+        this.outputDirectory = outputDirectory;
+        outputDirectory.mkdirs();
+        this.parsers = stage(parseThreads, queueCapacity);
+        this.solvers = stage(solveThreads, queueCapacity);
+        this.writers = stage(writeThreads, queueCapacity);
+    }
+
+    /**
+     * @return Returns a pool with a fixed number of threads and a bounded queue, which runs tasks on the submitting thread once the queue is full.
+     */
+    private static ThreadPoolExecutor stage(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Solves every maze file in a directory, then waits for the solutions to be written.
+     *
+     * @param args The directory of maze files, the directory to write solutions to and optionally --watch to keep solving files as they arrive.
+     * @throws IOException          Throws an IO exception if the directory cannot be read or watched.
+     * @throws InterruptedException Throws an interrupted exception if interrupted whilst waiting.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || args.length > 3 || (args.length == 3 && !args[2].equals("--watch"))) {
+            System.err.println("Usage: BatchSolver <maze directory> <solution directory> [--watch]");
+            System.exit(2);
+        }
+        try (BatchSolver batch = new BatchSolver(new File(args[1]))) {
+            if (args.length == 3) {
+                // Runs until the process is stopped.
+                batch.watch(new File(args[0]));
+                return;
+            }
+            long began = System.nanoTime();
+            int submitted = batch.submitDirectory(new File(args[0]));
+            batch.awaitCompletion();
+            System.out.println(submitted + " mazes in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began) + "ms: "
+                    + batch.getSolvedCount() + " solved, " + batch.getUnsolvedCount() + " unsolved, " + batch.getFailures().size() + " failed");
+            for (Map.Entry<File, Throwable> failure : batch.getFailures().entrySet()) {
+                System.err.println(failure.getKey() + ": " + failure.getValue());
+            }
+        }
+    }
+
+    /**
+     * Submits every maze file ({@code *.txt}, other than solutions) in a directory, in name order. Returns once every maze has been queued, not solved.
+     *
+     * @param directory The directory to read.
+     * @return Returns the number of mazes submitted.
+     * @throws IOException Throws an IO exception if the directory cannot be listed.
+     */
+    public int submitDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles(BatchSolver::isMaze);
+        if (files == null) {
+            throw new IOException("Could not list " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            submit(file);
+        }
+        return files.length;
+    }
+
+    /**
+     * Submits every maze file in a directory, and then every maze file created in the directory until the thread is interrupted.
+     * Files should be moved into the directory once complete (a rename is atomic) rather than written in place, as a file is read as soon as it is created.
+     * Whenever the directory is listed, files which already have a solution written since they were last modified are skipped.
+     *
+     * @param directory The directory to watch.
+     * @throws IOException          Throws an IO exception if the directory cannot be listed or watched.
+     * @throws InterruptedException Throws an interrupted exception once the thread is interrupted, which is the only way to stop watching.
+     */
+    public void watch(File directory) throws IOException, InterruptedException {
+        Path path = directory.toPath();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            // Register before listing so no file can arrive unseen between the two.
+            path.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            submitNew(directory);
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were lost, so list the directory again.
+                        submitNew(directory);
+                    } else {
+                        File file = path.resolve((Path) event.context()).toFile();
+                        if (isMaze(file) && watched.add(file.toPath())) {
+                            submit(file);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    throw new IOException(directory + " can no longer be watched");
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits every maze file in a directory which is not already in the pipeline and has not been solved since it was last modified.
+     */
+    private void submitNew(File directory) throws IOException {
+        File[] files = directory.listFiles(BatchSolver::isMaze);
+        if (files == null) {
+            throw new IOException("Could not list " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            File solution = solutionFile(file);
+            if (solution.lastModified() >= file.lastModified() && solution.exists()) {
+                continue;
+            }
+            if (watched.add(file.toPath())) {
+                submit(file);
+            }
+        }
+    }
+
+    /**
+     * Submits every file taken from a queue until END_OF_INPUT is taken.
+     *
+     * @param queue The queue to take maze files from.
+     * @throws InterruptedException Throws an interrupted exception if interrupted whilst waiting for the queue.
+     */
+    public void ingest(BlockingQueue<File> queue) throws InterruptedException {
+        for (File file = queue.take(); file != END_OF_INPUT; file = queue.take()) {
+            submit(file);
+        }
+    }
+
+    /**
+     * Submits a maze file to be parsed, solved and written. If the parse queue is full the maze is parsed on the calling thread.
+     *
+     * @param file The maze file.
+     */
+    public void submit(File file) {
+        synchronized (this) {
+            pending++;
+        }
+        parsers.execute(() -> parse(file));
+    }
+
+    /**
+     * The parse stage, which hands the maze on to the solve stage.
+     */
+    private void parse(File file) {
+        boolean handedOn = false;
+        try {
+            GentrackMaze maze = new GentrackMaze(file);
+            // From here the solve stage sees the maze out of the pipeline, even when it runs on this thread and fails.
+            handedOn = true;
+            solvers.execute(() -> solve(file, maze));
+        } catch (IOException | RuntimeException e) {
+            failures.put(file, e);
+        } finally {
+            if (!handedOn) {
+                finished(file);
+            }
+        }
+    }
+
+    /**
+     * The solve stage, which hands the maze on to the write stage whether or not it was solved (an unsolved maze is written without a route).
+     */
+    private void solve(File file, GentrackMaze maze) {
+        boolean handedOn = false;
+        try {
+            MazeGrid grid = maze.getGrid();
+            if (!grid.isPassage(maze.getStartX(), maze.getStartY()) || !grid.isPassage(maze.getEndX(), maze.getEndY())) {
+                failures.put(file, new IllegalArgumentException(file + " has a start or end which is not a passage"));
+                return;
+            }
+            if (maze.solve()) {
+                solvedCount.incrementAndGet();
+            } else {
+                unsolvedCount.incrementAndGet();
+            }
+            handedOn = true;
+            writers.execute(() -> write(file, maze));
+        } catch (RuntimeException e) {
+            failures.put(file, e);
+        } finally {
+            if (!handedOn) {
+                finished(file);
+            }
+        }
+    }
+
+    /**
+     * The write stage, which streams the solution (or the maze alone, if it was not solved) straight to its file.
+     */
+    private void write(File file, GentrackMaze maze) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(solutionFile(file)), WRITE_BUFFER_BYTES)) {
+            maze.render(out);
+        } catch (IOException | RuntimeException e) {
+            failures.put(file, e);
+        } finally {
+            finished(file);
+        }
+    }
+
+    /**
+     * Records that a maze has left the pipeline (written or failed), waking awaitCompletion once none are left.
+     * The file is forgotten by watch, so the set of files seen does not grow for as long as a directory is watched.
+     */
+    private void finished(File file) {
+        watched.remove(file.toPath());
+        synchronized (this) {
+            if (--pending == 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every maze submitted so far has been written (or has failed).
+     *
+     * @throws InterruptedException Throws an interrupted exception if interrupted whilst waiting.
+     */
+    public synchronized void awaitCompletion() throws InterruptedException {
+        while (pending > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * @param file A maze file.
+     * @return Returns the file its solution is written to.
+     */
+    public File solutionFile(File file) {
+        String name = file.getName();
+        if (name.endsWith(MAZE_SUFFIX)) {
+            name = name.substring(0, name.length() - MAZE_SUFFIX.length());
+        }
+        return new File(outputDirectory, name + SOLUTION_SUFFIX);
+    }
+
+    /**
+     * @return Returns true if the file looks like a maze file (and not a solution).
+     */
+    private static boolean isMaze(File file) {
+        String name = file.getName();
+        return name.endsWith(MAZE_SUFFIX) && !name.endsWith(SOLUTION_SUFFIX) && !name.startsWith(".") && file.isFile();
+    }
+
+    /**
+     * @return Returns the number of mazes solved.
+     */
+    public long getSolvedCount() {
+        return solvedCount.get();
+    }
+
+    /**
+     * @return Returns the number of mazes which have no route from start to end.
+     */
+    public long getUnsolvedCount() {
+        return unsolvedCount.get();
+    }
+
+    /**
+     * @return Returns the mazes which could not be parsed, solved or written, and why.
+     */
+    public Map<File, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Waits for every maze submitted to be written and then stops the threads of every stage.
+     *
+     * @throws IOException Throws an IO exception if interrupted whilst waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitCompletion();
+            // Stages are shut down in order, as each may still hand work on to the next.
+            for (ThreadPoolExecutor stage : new ThreadPoolExecutor[]{parsers, solvers, writers}) {
+                stage.shutdown();
+                stage.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst waiting for the batch to finish", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package sys;
+
+/**
+ * <p>The BidirectionalSolver grows two breadth first searches at once, one from the start and one from the end, and stops where they meet.
+ * Each search leaves its own signs, the forward signs point back to the start and the backward signs point back to the end.
+ * </p>
+ * <p>
+ * Searches are grown a whole level at a time, always growing the side with the smaller frontier.
+ * Because every passage is checked against the other side when it is discovered, the first meeting joins two shortest routes into a shortest route.
+ * </p>
+ */
+public final class BidirectionalSolver implements MazeSolver {
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        assert grid.isPassage(start);
+        assert grid.isPassage(end);
+        if (start == end) {
+            return new Route(new int[]{start}, 0, 0);
+        }
+        Signposts forward = new Signposts(grid);
+        Signposts backward = new Signposts(grid);
+        forward.markSeen(start);
+        backward.markSeen(end);
+        IntDeque forwardFrontier = new IntDeque(64);
+        IntDeque backwardFrontier = new IntDeque(64);
+        forwardFrontier.addLast(start);
+        backwardFrontier.addLast(end);
+        long expanded = 0;
+        int peakFrontier = 2;
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            boolean growForward = forwardFrontier.size() <= backwardFrontier.size();
+            IntDeque frontier = growForward ? forwardFrontier : backwardFrontier;
+            Signposts mine = growForward ? forward : backward;
+            Signposts theirs = growForward ? backward : forward;
+            // Grow one whole level of the chosen side.
+            for (int level = frontier.size(); level > 0; level--) {
+                int current = frontier.pollFirst();
+                expanded++;
+                for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                    int neighbour = grid.passageNeighbor(current, direction);
+                    if (neighbour != MazeGrid.NONE && !mine.isSeen(neighbour)) {
+                        mine.setSign(neighbour, MazeGrid.opposite(direction));
+                        if (theirs.isSeen(neighbour)) {
+                            return new Route(join(forward.trace(start, neighbour), backward.trace(end, neighbour)), expanded, peakFrontier);
+                        }
+                        frontier.addLast(neighbour);
+                        peakFrontier = Math.max(peakFrontier, forwardFrontier.size() + backwardFrontier.size());
+                    }
+                }
+            }
+        }
+        return Route.notFound(expanded, peakFrontier);
+    }
+
+    /**
+     * Joins the forward route (start to meeting passage) with the backward route (end to meeting passage).
+     *
+     * @param toMeeting   Cells from the start to the meeting passage.
+     * @param fromMeeting Cells from the end to the meeting passage.
+     * @return Returns the cells from start to end.
+     */
+    private static int[] join(int[] toMeeting, int[] fromMeeting) {
+        int[] route = new int[toMeeting.length + fromMeeting.length - 1];
+        System.arraycopy(toMeeting, 0, route, 0, toMeeting.length);
+        // The backward route is reversed and its copy of the meeting passage dropped.
+        for (int step = 0; step < fromMeeting.length - 1; step++) {
+            route[toMeeting.length + step] = fromMeeting[fromMeeting.length - 2 - step];
+        }
+        return route;
+    }
+}
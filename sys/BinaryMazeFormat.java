@@ -0,0 +1,186 @@
+package sys;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>The BinaryMazeFormat stores a maze as a fixed header followed by its cells packed one bit per cell, roughly sixteen times smaller than the text format.
+ * All values are little-endian.
+ * </p>
+ * <pre>
+ * offset  size  field
+ *      0     4  magic "GTMZ"
+ *      4     4  format version (1)
+ *      8     4  width
+ *     12     4  height
+ *     16     4  start x
+ *     20     4  start y
+ *     24     4  end x
+ *     28     4  end y
+ *     32     8n cells as n = ceil(width * height / 64) longs, bit (index % 64) of long (index / 64) set for a passage, index = y * width + x
+ * </pre>
+ * <p>
+ * The cells are laid out exactly as a MazeGrid holds them, so opening a file memory-maps it and bulk copies the cells into the grid without parsing.
+ * The text constructors of GentrackMaze are unaffected, run this class with a text file and a binary file to convert between the two.
+ * </p>
+ */
+public final class BinaryMazeFormat {
+    private static final int MAGIC = 'G' | 'T' << 8 | 'M' << 16 | 'Z' << 24;
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    // Cells are written through a buffer of this many bytes.
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private BinaryMazeFormat() {
+    }
+
+    /**
+     * Converts a text GentrackMaze file to the binary format.
+     *
+     * @param args The text file to read and the binary file to write.
+     * @throws IOException Throws an IO exception if either file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryMazeFormat <maze.txt> <maze.gtmz>");
+            System.exit(2);
+        }
+        convert(new File(args[0]), new File(args[1]));
+    }
+
+    /**
+     * Converts a text GentrackMaze file to the binary format.
+     * The cells are streamed straight through without building a grid, so mazes too large for the heap can be converted (and opened with TiledMaze).
+     *
+     * @param text   The text file to read.
+     * @param binary The binary file to write.
+     * @throws IOException Throws an IO exception if either file cannot be read or written.
+     */
+    public static void convert(File text, File binary) throws IOException {
+        try (FileChannel input = FileChannel.open(text.toPath(), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(binary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MazeReader reader = new MazeReader(input);
+            int width = reader.nextInt();
+            int height = reader.nextInt();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .putInt(width).putInt(height)
+                    .putInt(reader.nextInt()).putInt(reader.nextInt())
+                    .putInt(reader.nextInt()).putInt(reader.nextInt());
+            final long[] written = {0};
+            reader.readCells((long) width * height, word -> {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(output, buffer);
+                }
+                buffer.putLong(word);
+                written[0]++;
+            });
+            // A text file which ends early is padded with walls, as the text constructors would leave them.
+            for (long word = written[0]; word < wordCount(width, height); word++) {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(output, buffer);
+                }
+                buffer.putLong(0);
+            }
+            drain(output, buffer);
+        }
+    }
+
+    /**
+     * Writes a maze in the binary format.
+     *
+     * @param maze The maze to write.
+     * @param path The file to write (replaced if it exists).
+     * @throws IOException Throws an IO exception if the file cannot be written.
+     */
+    static void write(GentrackMaze maze, Path path) throws IOException {
+        MazeGrid grid = maze.getGrid();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .putInt(grid.width()).putInt(grid.height())
+                    .putInt(maze.getStartX()).putInt(maze.getStartY())
+                    .putInt(maze.getEndX()).putInt(maze.getEndY());
+            for (int word = 0; word < grid.wordCount(); word++) {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(grid.word(word));
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes out everything held in the buffer and clears it.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @return Returns the number of longs holding the cells of a maze.
+     */
+    static long wordCount(int width, int height) {
+        return ((long) width * height + 63) >>> 6;
+    }
+
+    /**
+     * Maps and checks the header of a binary maze file.
+     *
+     * @param channel The open file.
+     * @param path    The path of the file (for messages).
+     * @return Returns the header, little-endian, with the fields at the offsets above.
+     * @throws IOException Throws an IO exception if the file cannot be read, is not a binary maze file or is shorter than its header says.
+     */
+    static ByteBuffer readHeader(FileChannel channel, Path path) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            throw new IOException(path + " is not a binary maze file");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a binary maze file");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException(path + " is binary maze format version " + header.getInt(4) + ", expected " + VERSION);
+        }
+        int width = header.getInt(8);
+        int height = header.getInt(12);
+        if (width <= 0 || height <= 0 || channel.size() < HEADER_BYTES + wordCount(width, height) * Long.BYTES) {
+            throw new IOException(path + " is truncated or has an invalid header");
+        }
+        return header;
+    }
+
+    /**
+     * Opens a maze stored in the binary format by memory-mapping the file.
+     *
+     * @param path The file to open.
+     * @return Returns the maze.
+     * @throws IOException Throws an IO exception if the file cannot be read, is not a binary maze file or is too large to hold on the heap.
+     */
+    static GentrackMaze read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, path);
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            if ((long) width * height > Integer.MAX_VALUE) {
+                throw new IOException(path + " has " + (long) width * height + " cells, too many to hold on the heap (open it with TiledMaze)");
+            }
+            long[] cells = new long[(int) wordCount(width, height)];
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) cells.length * Long.BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(cells);
+            return new GentrackMaze(new MazeGrid(width, height, cells), header.getInt(16), header.getInt(20), header.getInt(24), header.getInt(28));
+        }
+    }
+}
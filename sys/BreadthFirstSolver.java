@@ -0,0 +1,41 @@
+package sys;
+
+/**
+ * <p>The BreadthFirstSolver expands passages in the order they are discovered (a queue rather than a stack), so every passage is reached by a shortest route.
+ * The search stops as soon as the end is discovered, which guarantees the route returned is a shortest route.
+ * </p>
+ */
+public final class BreadthFirstSolver implements MazeSolver {
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        assert grid.isPassage(start);
+        assert grid.isPassage(end);
+        Signposts signposts = new Signposts(grid);
+        signposts.markSeen(start);
+        if (start == end) {
+            return new Route(new int[]{start}, 0, 0);
+        }
+        // Queue of discovered passages, flagged as seen when queued.
+        IntDeque frontier = new IntDeque(64);
+        frontier.addLast(start);
+        long expanded = 0;
+        int peakFrontier = 1;
+        while (!frontier.isEmpty()) {
+            int current = frontier.pollFirst();
+            expanded++;
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int neighbour = grid.passageNeighbor(current, direction);
+                if (neighbour != MazeGrid.NONE && !signposts.isSeen(neighbour)) {
+                    signposts.setSign(neighbour, MazeGrid.opposite(direction));
+                    if (neighbour == end) {
+                        return new Route(signposts.trace(start, end), expanded, peakFrontier);
+                    }
+                    frontier.addLast(neighbour);
+                    peakFrontier = Math.max(peakFrontier, frontier.size());
+                }
+            }
+        }
+        return Route.notFound(expanded, peakFrontier);
+    }
+}
@@ -0,0 +1,88 @@
+package sys;
+
+/**
+ * <p>A CompactRoute holds the cells of a route as its start cell and the direction of each step, packed two bits per step (32 steps to a long),
+ * roughly sixteen times smaller than the cell indices of a Route. The cell indices are recovered from the width of the maze when the route is expanded.
+ * </p>
+ */
+final class CompactRoute {
+    private final int width;
+    private final int start;
+    // The number of steps, or -1 if no route was found.
+    private final int length;
+    // Two bits per step holding the direction of the step.
+    private final long[] steps;
+
+    /**
+     * CompactRoute constructor. Packs the steps of a route.
+     *
+     * @param grid  The grid the route was found on.
+     * @param route The route (which may not have been found).
+     */
+    CompactRoute(MazeGrid grid, Route route) {
+        this.width = grid.width();
+        this.length = route.length();
+        int[] cells = route.cellArray();
+        this.start = route.isFound() ? cells[0] : MazeGrid.NONE;
+        this.steps = new long[(Math.max(length, 0) + 31) >>> 5];
+        for (int step = 0; step < Math.max(length, 0); step++) {
+            int from = cells[step];
+            int direction = MazeGrid.NORTH;
+            while (grid.neighbor(from, direction) != cells[step + 1]) {
+                direction++;
+                assert direction <= MazeGrid.WEST;
+            }
+            steps[step >>> 5] |= (long) direction << ((step & 31) << 1);
+        }
+    }
+
+    /**
+     * @return Returns true if a route was found.
+     */
+    boolean isFound() {
+        return length >= 0;
+    }
+
+    /**
+     * @return Returns the number of steps, or -1 if no route was found.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return Returns roughly the number of bytes held by the route.
+     */
+    long byteSize() {
+        return 32 + 16 + (long) steps.length * Long.BYTES;
+    }
+
+    /**
+     * Expands the steps back into cell indices.
+     *
+     * @return Returns the cell indices of the route from start to finish (inclusive).
+     */
+    int[] expand() {
+        assert isFound();
+        int[] cells = new int[length + 1];
+        int cell = start;
+        cells[0] = cell;
+        for (int step = 0; step < length; step++) {
+            switch ((int) (steps[step >>> 5] >>> ((step & 31) << 1)) & 3) {
+                case MazeGrid.NORTH:
+                    cell -= width;
+                    break;
+                case MazeGrid.EAST:
+                    cell++;
+                    break;
+                case MazeGrid.SOUTH:
+                    cell += width;
+                    break;
+                default:
+                    cell--;
+            }
+            cells[step + 1] = cell;
+        }
+        return cells;
+    }
+}
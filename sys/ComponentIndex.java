@@ -0,0 +1,105 @@
+package sys;
+
+/**
+ * <p>The ComponentIndex labels every passage of a MazeGrid with the id of its connected component, in a single flood fill over the grid.
+ * Two passages are reachable from one another exactly when they share a label, so reachability (and whether a query can be solved at all) is answered in constant time without searching.
+ * </p>
+ * <p>
+ * Labels are only held for passages. A passage is found in the label array by its rank amongst the passages (a running count per 64 cells plus a bit count within the word), so walls cost no label.
+ * The index is read-only once built and can be shared between threads.
+ * </p>
+ */
+public final class ComponentIndex {
+    private final MazeGrid grid;
+    // The number of passages before each word of the grid.
+    private final int[] rankBefore;
+    // Component id of each passage, by passage rank.
+    private final int[] labels;
+    private final int components;
+
+    /**
+     * ComponentIndex constructor. Labels every passage of the grid.
+     *
+     * @param grid The grid to label.
+     */
+    ComponentIndex(MazeGrid grid) {
+        this.grid = grid;
+        this.rankBefore = new int[grid.wordCount()];
+        int passages = 0;
+        for (int word = 0; word < rankBefore.length; word++) {
+            rankBefore[word] = passages;
+            passages += Long.bitCount(grid.word(word));
+        }
+        this.labels = new int[passages];
+        // Flood fill from every passage which has not been labelled yet (labels start from one so zero means unlabelled).
+        IntDeque frontier = new IntDeque(64);
+        int component = 0;
+        for (int word = 0; word < rankBefore.length; word++) {
+            for (long bits = grid.word(word); bits != 0; bits &= bits - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (labels[rankOf(cell)] != 0) {
+                    continue;
+                }
+                component++;
+                labels[rankOf(cell)] = component;
+                frontier.addLast(cell);
+                while (!frontier.isEmpty()) {
+                    int current = frontier.pollLast();
+                    for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                        int neighbour = grid.passageNeighbor(current, direction);
+                        if (neighbour != MazeGrid.NONE && labels[rankOf(neighbour)] == 0) {
+                            labels[rankOf(neighbour)] = component;
+                            frontier.addLast(neighbour);
+                        }
+                    }
+                }
+            }
+        }
+        this.components = component;
+    }
+
+    /**
+     * @param cell A passage.
+     * @return Returns the rank of the passage amongst all passages (its position in the label array).
+     */
+    private int rankOf(int cell) {
+        return rankBefore[cell >>> 6] + Long.bitCount(grid.word(cell >>> 6) & ((1L << cell) - 1));
+    }
+
+    /**
+     * @return Returns the number of connected components of passages.
+     */
+    public int componentCount() {
+        return components;
+    }
+
+    /**
+     * @param cell A cell index on the grid.
+     * @return Returns the component id of the cell (from one upwards), or zero if the cell is a wall.
+     */
+    public int componentOf(int cell) {
+        return grid.isPassage(cell) ? labels[rankOf(cell)] : 0;
+    }
+
+    /**
+     * @param from A cell index on the grid.
+     * @param to   A cell index on the grid.
+     * @return Returns true if both cells are passages in the same component.
+     */
+    public boolean isReachable(int from, int to) {
+        int component = componentOf(from);
+        return component != 0 && component == componentOf(to);
+    }
+
+    /**
+     * The string representation of the index (does not include the labels themselves).
+     *
+     * @return Returns the string representation of the index in the format ComponentIndex{components=..}.
+     */
+    @Override
+    public String toString() {
+        return "ComponentIndex{" +
+                "components=" + components +
+                '}';
+    }
+}
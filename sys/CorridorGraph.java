@@ -0,0 +1,270 @@
+package sys;
+
+import java.util.Arrays;
+
+/**
+ * <p>The CorridorGraph is a compact weighted graph precomputed from the passages of a MazeGrid.
+ * Most passages of a maze are corridor cells with exactly two neighbouring passages, and a search gains nothing by expanding them one at a time.
+ * Junctions and dead-ends (any passage which does not have exactly two neighbouring passages) become the vertices of the graph,
+ * and the corridors between them become edges weighted by the number of steps along the corridor.
+ * A corridor which loops back on itself without meeting a junction has one of its cells promoted to a vertex.
+ * </p>
+ * <p>
+ * The cells of a corridor are not stored. An edge is identified by its vertex and the direction it leaves in, and its cells are recovered by walking the corridor from there.
+ * Vertices are identified by rank: a bitset flags which cells are vertices and a running count per 64 cells gives the vertex id of a cell in constant time.
+ * </p>
+ * <p>
+ * The graph is read-only once built, so one graph can be shared by any number of searches (see CorridorSolver).
+ * </p>
+ */
+public final class CorridorGraph {
+    private final MazeGrid grid;
+    // One bit per cell, set if the cell is a vertex.
+    private final long[] vertexBits;
+    // The number of vertices before each word of vertexBits.
+    private final int[] rankBefore;
+    // The cell of each vertex.
+    private final int[] vertexCells;
+    // Four edge slots per vertex (one per direction), holding the vertex reached along the corridor (or MazeGrid.NONE).
+    private final int[] edgeTargets;
+    // Four edge slots per vertex, holding the number of steps along the corridor.
+    private final int[] edgeLengths;
+
+    /**
+     * CorridorGraph constructor. Builds the graph from every passage of the grid.
+     *
+     * @param grid The grid to compress.
+     */
+    CorridorGraph(MazeGrid grid) {
+        this.grid = grid;
+        this.vertexBits = new long[(grid.size() + 63) >>> 6];
+        // Junctions and dead-ends are vertices.
+        for (int cell = 0; cell < grid.size(); cell++) {
+            if (grid.isPassage(cell) && passageDegree(cell) != 2) {
+                vertexBits[cell >>> 6] |= 1L << cell;
+            }
+        }
+        promoteLoops();
+        this.rankBefore = new int[vertexBits.length];
+        int vertices = 0;
+        for (int word = 0; word < vertexBits.length; word++) {
+            rankBefore[word] = vertices;
+            vertices += Long.bitCount(vertexBits[word]);
+        }
+        this.vertexCells = new int[vertices];
+        this.edgeTargets = new int[vertices << 2];
+        this.edgeLengths = new int[vertices << 2];
+        Arrays.fill(edgeTargets, MazeGrid.NONE);
+        // Walk every corridor leaving every vertex (each corridor is walked once from each end).
+        int vertex = 0;
+        for (int word = 0; word < vertexBits.length; word++) {
+            for (long bits = vertexBits[word]; bits != 0; bits &= bits - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                vertexCells[vertex] = cell;
+                for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                    if (grid.passageNeighbor(cell, direction) != MazeGrid.NONE) {
+                        long walked = walk(cell, direction, MazeGrid.NONE, null);
+                        edgeTargets[(vertex << 2) + direction] = vertexOf(endOf(walked));
+                        edgeLengths[(vertex << 2) + direction] = lengthOf(walked);
+                    }
+                }
+                vertex++;
+            }
+        }
+    }
+
+    /**
+     * Promotes one cell of every corridor which loops back on itself without meeting a vertex.
+     * Such loops are the only corridor cells which are not reached by walking out from the vertices.
+     */
+    private void promoteLoops() {
+        long[] reached = new long[vertexBits.length];
+        IntDeque cells = new IntDeque(64);
+        for (int cell = 0; cell < grid.size(); cell++) {
+            if (isVertex(cell)) {
+                for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                    if (grid.passageNeighbor(cell, direction) != MazeGrid.NONE) {
+                        cells.clear();
+                        walk(cell, direction, MazeGrid.NONE, cells);
+                        mark(reached, cells);
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < grid.size(); cell++) {
+            if (grid.isPassage(cell) && (reached[cell >>> 6] & (1L << cell)) == 0 && !isVertex(cell)) {
+                vertexBits[cell >>> 6] |= 1L << cell;
+                cells.clear();
+                walk(cell, firstPassageDirection(cell), MazeGrid.NONE, cells);
+                mark(reached, cells);
+            }
+        }
+    }
+
+    /**
+     * Flags every cell held in the deque on a bitset.
+     */
+    private static void mark(long[] bitset, IntDeque cells) {
+        for (int position = 0; position < cells.size(); position++) {
+            int cell = cells.get(position);
+            bitset[cell >>> 6] |= 1L << cell;
+        }
+    }
+
+    /**
+     * @return Returns the grid the graph was built from.
+     */
+    MazeGrid grid() {
+        return grid;
+    }
+
+    /**
+     * @return Returns the number of vertices (junctions, dead-ends and promoted loop cells).
+     */
+    public int vertexCount() {
+        return vertexCells.length;
+    }
+
+    /**
+     * @return Returns the number of edges (corridors), counting each corridor once.
+     */
+    public int edgeCount() {
+        int slots = 0;
+        for (int target : edgeTargets) {
+            if (target != MazeGrid.NONE) {
+                slots++;
+            }
+        }
+        return slots / 2;
+    }
+
+    /**
+     * @param cell A cell index on the grid.
+     * @return Returns true if the cell is a vertex of the graph.
+     */
+    boolean isVertex(int cell) {
+        return (vertexBits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @param cell A cell which is a vertex of the graph.
+     * @return Returns the vertex id of the cell.
+     */
+    int vertexOf(int cell) {
+        assert isVertex(cell);
+        return rankBefore[cell >>> 6] + Long.bitCount(vertexBits[cell >>> 6] & ((1L << cell) - 1));
+    }
+
+    /**
+     * @param vertex A vertex id.
+     * @return Returns the cell of the vertex.
+     */
+    int cellOf(int vertex) {
+        return vertexCells[vertex];
+    }
+
+    /**
+     * @param vertex    A vertex id.
+     * @param direction The direction the corridor leaves the vertex in.
+     * @return Returns the vertex at the other end of the corridor, or MazeGrid.NONE if there is no passage in that direction.
+     */
+    int edgeTarget(int vertex, int direction) {
+        return edgeTargets[(vertex << 2) + direction];
+    }
+
+    /**
+     * @param vertex    A vertex id.
+     * @param direction The direction the corridor leaves the vertex in.
+     * @return Returns the number of steps along the corridor.
+     */
+    int edgeLength(int vertex, int direction) {
+        return edgeLengths[(vertex << 2) + direction];
+    }
+
+    /**
+     * Walks along a corridor from a cell, stepping first in the given direction and then following the corridor until a vertex (or the stop cell) is reached.
+     *
+     * @param from      The cell to walk from (not included in the walk).
+     * @param direction The direction of the first step, which must lead to a passage.
+     * @param stopAt    A cell to stop at even if it is not a vertex, or MazeGrid.NONE.
+     * @param cells     Collects the cells walked through, including the final cell (may be null).
+     * @return Returns the cell the walk ended on and the number of steps taken, packed into a long (see endOf and lengthOf).
+     */
+    long walk(int from, int direction, int stopAt, IntDeque cells) {
+        int current = grid.passageNeighbor(from, direction);
+        assert current != MazeGrid.NONE;
+        int length = 1;
+        while (!isVertex(current) && current != stopAt) {
+            if (cells != null) {
+                cells.addLast(current);
+            }
+            // A corridor cell has exactly two neighbouring passages, continue through the one we did not arrive from.
+            int back = MazeGrid.opposite(direction);
+            for (direction = MazeGrid.NORTH; direction == back || grid.passageNeighbor(current, direction) == MazeGrid.NONE; direction++) {
+                assert direction < MazeGrid.WEST;
+            }
+            current = grid.passageNeighbor(current, direction);
+            length++;
+        }
+        if (cells != null) {
+            cells.addLast(current);
+        }
+        return ((long) length << 32) | current;
+    }
+
+    /**
+     * @param walked The result of a walk.
+     * @return Returns the cell the walk ended on.
+     */
+    static int endOf(long walked) {
+        return (int) walked;
+    }
+
+    /**
+     * @param walked The result of a walk.
+     * @return Returns the number of steps taken by the walk.
+     */
+    static int lengthOf(long walked) {
+        return (int) (walked >>> 32);
+    }
+
+    /**
+     * @param cell A passage.
+     * @return Returns the first direction (in N, E, S, W order) leading to a neighbouring passage, or MazeGrid.NONE.
+     */
+    int firstPassageDirection(int cell) {
+        for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+            if (grid.passageNeighbor(cell, direction) != MazeGrid.NONE) {
+                return direction;
+            }
+        }
+        return MazeGrid.NONE;
+    }
+
+    /**
+     * @param cell A cell index on the grid.
+     * @return Returns the number of neighbouring passages.
+     */
+    private int passageDegree(int cell) {
+        int degree = 0;
+        for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+            if (grid.passageNeighbor(cell, direction) != MazeGrid.NONE) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * The string representation of the graph (does not include the vertices and edges themselves).
+     *
+     * @return Returns the string representation of the graph in the format CorridorGraph{vertices=.., edges=..}.
+     */
+    @Override
+    public String toString() {
+        return "CorridorGraph{" +
+                "vertices=" + vertexCount() +
+                ", edges=" + edgeCount() +
+                '}';
+    }
+}
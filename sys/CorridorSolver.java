@@ -0,0 +1,271 @@
+package sys;
+
+import java.util.Arrays;
+
+/**
+ * <p>The CorridorSolver searches a precomputed CorridorGraph rather than the cells of the grid, so a corridor costs one expansion however long it is.
+ * Corridors are weighted by their length so the search is Dijkstra's algorithm over the junctions and dead-ends of the maze, which returns a shortest route.
+ * </p>
+ * <p>
+ * A start or end part way along a corridor is joined to the vertices at both ends of its corridor before searching (and a start and end on the same corridor are also joined directly).
+ * The route is returned by length, and its cells are only expanded by walking the corridors again when they are asked for (for instance when the solution is printed).
+ * </p>
+ * <p>
+ * The reported node count is the number of vertices settled by the search.
+ * </p>
+ */
+public final class CorridorSolver implements MazeSolver {
+    // Recorded as the way a vertex was reached when it was reached directly from a start on a vertex.
+    private static final int FROM_START = -1;
+    private final CorridorGraph graph;
+
+    /**
+     * CorridorSolver constructor.
+     *
+     * @param graph The graph to search (see GentrackMaze.getCorridorGraph).
+     */
+    public CorridorSolver(CorridorGraph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        assert grid == graph.grid();
+        assert grid.isPassage(start);
+        assert grid.isPassage(end);
+        if (start == end) {
+            return new Route(new int[]{start}, 0, 0);
+        }
+        final int vertices = graph.vertexCount();
+        final int[] distances = new int[vertices];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        // How each vertex was reached: (previous vertex << 2 | direction of the corridor), or a seed from the start (negative).
+        final int[] via = new int[vertices];
+        LongHeap open = new LongHeap();
+        // The shortest route straight along the corridor shared by the start and end (if they share one).
+        int directLength = Integer.MAX_VALUE;
+        int directDirection = MazeGrid.NONE;
+        if (graph.isVertex(start)) {
+            int vertex = graph.vertexOf(start);
+            distances[vertex] = 0;
+            via[vertex] = FROM_START;
+            open.push(vertex, 0);
+        } else {
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                if (grid.passageNeighbor(start, direction) == MazeGrid.NONE) {
+                    continue;
+                }
+                long walked = graph.walk(start, direction, end, null);
+                int length = CorridorGraph.lengthOf(walked);
+                if (CorridorGraph.endOf(walked) == end) {
+                    if (length < directLength) {
+                        directLength = length;
+                        directDirection = direction;
+                    }
+                } else {
+                    int vertex = graph.vertexOf(CorridorGraph.endOf(walked));
+                    if (length < distances[vertex]) {
+                        distances[vertex] = length;
+                        via[vertex] = seed(direction);
+                        open.push(vertex, length);
+                    }
+                }
+            }
+        }
+        // The vertices the end can be reached from, the length of the corridor to the end and the direction of the corridor from the end.
+        int[] targetVertices = new int[2];
+        int[] targetLengths = new int[2];
+        int[] targetDirections = new int[2];
+        int targets = 0;
+        if (graph.isVertex(end)) {
+            targetVertices[targets] = graph.vertexOf(end);
+            targetDirections[targets] = MazeGrid.NONE;
+            targetLengths[targets++] = 0;
+        } else {
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                if (grid.passageNeighbor(end, direction) != MazeGrid.NONE) {
+                    long walked = graph.walk(end, direction, MazeGrid.NONE, null);
+                    targetVertices[targets] = graph.vertexOf(CorridorGraph.endOf(walked));
+                    targetDirections[targets] = direction;
+                    targetLengths[targets++] = CorridorGraph.lengthOf(walked);
+                }
+            }
+        }
+        // Dijkstra's algorithm, stopping once nothing left open can beat the best route to the end.
+        int best = directLength;
+        int bestTarget = -1;
+        long expanded = 0;
+        int peakFrontier = open.size();
+        while (!open.isEmpty()) {
+            int distance = open.peekKey();
+            int vertex = open.pop();
+            if (distance >= best) {
+                break;
+            }
+            if (distance > distances[vertex]) {
+                // A stale entry for a vertex which has since been reached more cheaply.
+                continue;
+            }
+            expanded++;
+            for (int target = 0; target < targets; target++) {
+                if (targetVertices[target] == vertex && distance + targetLengths[target] < best) {
+                    best = distance + targetLengths[target];
+                    bestTarget = target;
+                }
+            }
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int next = graph.edgeTarget(vertex, direction);
+                if (next == MazeGrid.NONE) {
+                    continue;
+                }
+                int nextDistance = distance + graph.edgeLength(vertex, direction);
+                if (nextDistance < distances[next]) {
+                    distances[next] = nextDistance;
+                    via[next] = (vertex << 2) | direction;
+                    open.push(next, nextDistance);
+                    peakFrontier = Math.max(peakFrontier, open.size());
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            return Route.notFound(expanded, peakFrontier);
+        }
+        if (bestTarget == -1) {
+            final int direction = directDirection;
+            return new Route(best, () -> expandDirect(start, direction, end), expanded, peakFrontier);
+        }
+        final int lastVertex = targetVertices[bestTarget];
+        final int endDirection = targetDirections[bestTarget];
+        return new Route(best, () -> expand(start, end, lastVertex, endDirection, via), expanded, peakFrontier);
+    }
+
+    /**
+     * @param direction The direction a corridor leaves the start in.
+     * @return Returns the way a vertex was reached when reached along the corridor from a start part way along a corridor.
+     */
+    private static int seed(int direction) {
+        return -2 - direction;
+    }
+
+    /**
+     * Expands a route straight along the corridor shared by the start and end.
+     */
+    private int[] expandDirect(int start, int direction, int end) {
+        IntDeque cells = new IntDeque(64);
+        cells.addLast(start);
+        graph.walk(start, direction, end, cells);
+        return toArray(cells);
+    }
+
+    /**
+     * Expands a route through the graph back into cells by walking each corridor on it.
+     *
+     * @param start        The start cell.
+     * @param end          The end cell.
+     * @param lastVertex   The last vertex on the route.
+     * @param endDirection The direction of the corridor from the end to the last vertex (MazeGrid.NONE if the end is the last vertex).
+     * @param via          How each vertex was reached.
+     * @return Returns the cells of the route from start to end.
+     */
+    private int[] expand(int start, int end, int lastVertex, int endDirection, int[] via) {
+        // Collect the corridors taken, last first.
+        IntDeque corridors = new IntDeque(16);
+        int vertex = lastVertex;
+        while (via[vertex] >= 0) {
+            corridors.addLast(via[vertex]);
+            vertex = via[vertex] >>> 2;
+        }
+        IntDeque cells = new IntDeque(64);
+        cells.addLast(start);
+        if (via[vertex] != FROM_START) {
+            // Walk from the start along its corridor to the first vertex.
+            graph.walk(start, -2 - via[vertex], MazeGrid.NONE, cells);
+        }
+        while (!corridors.isEmpty()) {
+            int corridor = corridors.pollLast();
+            graph.walk(graph.cellOf(corridor >>> 2), corridor & 3, MazeGrid.NONE, cells);
+        }
+        if (endDirection != MazeGrid.NONE) {
+            // Walk from the end to the last vertex, then append the walk in reverse (without the vertex, which is already on the route).
+            IntDeque toEnd = new IntDeque(64);
+            graph.walk(end, endDirection, MazeGrid.NONE, toEnd);
+            for (int position = toEnd.size() - 2; position >= 0; position--) {
+                cells.addLast(toEnd.get(position));
+            }
+            cells.addLast(end);
+        }
+        return toArray(cells);
+    }
+
+    /**
+     * @param cells Cells collected by walking.
+     * @return Returns the cells as an array.
+     */
+    private static int[] toArray(IntDeque cells) {
+        int[] array = new int[cells.size()];
+        for (int position = 0; position < array.length; position++) {
+            array[position] = cells.get(position);
+        }
+        return array;
+    }
+
+    /**
+     * A binary min-heap of vertices keyed by distance, packed into primitive longs (distance in the high half, vertex in the low half).
+     * Vertices are not decreased in place, a cheaper entry is pushed and stale entries are skipped when popped.
+     */
+    private static final class LongHeap {
+        private long[] entries = new long[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void push(int vertex, int key) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size << 1);
+            }
+            long entry = ((long) key << 32) | vertex;
+            int position = size++;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (entries[parent] <= entry) {
+                    break;
+                }
+                entries[position] = entries[parent];
+                position = parent;
+            }
+            entries[position] = entry;
+        }
+
+        int peekKey() {
+            return (int) (entries[0] >>> 32);
+        }
+
+        int pop() {
+            long top = entries[0];
+            long last = entries[--size];
+            int position = 0;
+            while (true) {
+                int child = (position << 1) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && entries[child + 1] < entries[child]) {
+                    child++;
+                }
+                if (entries[child] >= last) {
+                    break;
+                }
+                entries[position] = entries[child];
+                position = child;
+            }
+            entries[position] = last;
+            return (int) top;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package sys;
+
+/**
+ * <p>The DepthFirstSolver performs the bespoke signposting depth first search of the original GentrackMaze.
+ * Passages are pushed to a stack of unseen passages as they are discovered and each is given a sign pointing back to the passage it was reached from.
+ * The search stops as soon as the end is discovered, so the route is not necessarily the shortest.
+ * </p>
+ */
+public final class DepthFirstSolver implements MazeSolver {
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        assert grid.isPassage(start);
+        assert grid.isPassage(end);
+        // Signs record which passage each passage was reached from (and whether it has been seen at all).
+        Signposts seenPassages = new Signposts(grid);
+        seenPassages.markSeen(start);
+        if (start == end) {
+            return new Route(new int[]{start}, 0, 0);
+        }
+        // Stack of unseen passages for backtracking (a passage is flagged as seen when pushed, so the stack never exceeds the passage count).
+        IntDeque unseenPassages = new IntDeque(64);
+        // Add to the stack the first passage.
+        unseenPassages.addLast(start);
+        long expanded = 0;
+        int peakFrontier = 1;
+        // While the unseen passages is not empty.
+        while (!unseenPassages.isEmpty()) {
+            int currentPassage = unseenPassages.pollLast();
+            expanded++;
+            // Investigate the neighbours of the passage. If passages have been seen then do not add to the stack, otherwise add to the stack.
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int passageNeighbour = grid.passageNeighbor(currentPassage, direction);
+                if (passageNeighbour != MazeGrid.NONE && !seenPassages.isSeen(passageNeighbour)) {
+                    // We achieve knowledge of the route by pointing the neighbour's sign back to the current passage.
+                    seenPassages.setSign(passageNeighbour, MazeGrid.opposite(direction));
+                    if (passageNeighbour == end) {
+                        // If we reach the end then we have completed the search and can backtrack.
+                        return new Route(seenPassages.trace(start, end), expanded, peakFrontier);
+                    }
+                    // If we don't, then push the neighbour to the stack to be searched.
+                    unseenPassages.addLast(passageNeighbour);
+                    peakFrontier = Math.max(peakFrontier, unseenPassages.size());
+                }
+            }
+        }
+        return Route.notFound(expanded, peakFrontier);
+    }
+}
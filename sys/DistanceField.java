@@ -0,0 +1,294 @@
+package sys;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * <p>A DistanceField holds the number of steps from every passage of a maze to the nearest of one or more sources, found by a single breadth first search
+ * which starts from all of the sources at once. Along with each distance it keeps a two bit sign pointing one step back towards the nearest source,
+ * so the route to any target is read off in time proportional to its length rather than searched for again.
+ * </p>
+ * <p>
+ * Use one to answer many questions about the same sources: the distance from a start to many goals (a single source), or the nearest of several exits
+ * and the route to it (many sources). The distances between every pair of a set of points take one field per point, see GentrackMaze.distanceMatrix.
+ * A field holds four bytes and two bits per cell, and may be written to a file and read back to answer later queries on the same maze (see write and read).
+ * </p>
+ * <p>
+ * A field is a snapshot of the maze it was built from, it is not updated by later edits (see GentrackMaze.setWall). Fields are never written to once built
+ * and may be shared between threads.
+ * </p>
+ * <pre>
+ * offset  size  field
+ *      0     4  magic "GTDF"
+ *      4     4  format version (1)
+ *      8     4  width
+ *     12     4  height
+ *     16     8  hash of the cells of the maze the field was built from
+ *     24     8  passages expanded building the field
+ *     32     4n distance of each cell (-1 if unreached), n = width * height, index = y * width + x
+ *   32+4n    8m signs as m = ceil(n / 32) longs, two bits per cell holding the direction one step back towards the nearest source
+ * </pre>
+ */
+public final class DistanceField {
+    private static final int MAGIC = 'G' | 'T' << 8 | 'D' << 16 | 'F' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    // Fields are written and read through a buffer of this many bytes.
+    private static final int BUFFER_BYTES = 1 << 16;
+    private final int width;
+    private final int height;
+    private final long gridHash;
+    private final long expanded;
+    // The number of steps from the nearest source to each cell, or -1 for walls and passages no source reaches.
+    private final int[] distances;
+    // Two bits per cell holding the direction back towards the nearest source, only meaningful for cells a step or more from a source.
+    private final long[] signs;
+
+    private DistanceField(int width, int height, long gridHash, long expanded, int[] distances, long[] signs) {
+        this.width = width;
+        this.height = height;
+        this.gridHash = gridHash;
+        this.expanded = expanded;
+        this.distances = distances;
+        this.signs = signs;
+    }
+
+    /**
+     * Builds the field of one or more sources with a single breadth first search seeded with every source at distance 0.
+     *
+     * @param grid    The grid to search.
+     * @param sources Cell indices of the source passages (duplicates are ignored).
+     * @return Returns the field.
+     */
+    static DistanceField build(MazeGrid grid, int[] sources) {
+        final int[] distances = new int[grid.size()];
+        final long[] signs = new long[(grid.size() + 31) >>> 5];
+        Arrays.fill(distances, -1);
+        // Every cell is queued at most once, so the queue never wraps.
+        final int[] queue = new int[grid.size()];
+        int head = 0;
+        int tail = 0;
+        for (int source : sources) {
+            assert grid.isPassage(source);
+            if (distances[source] == -1) {
+                distances[source] = 0;
+                queue[tail++] = source;
+            }
+        }
+        while (head < tail) {
+            int current = queue[head++];
+            int next = distances[current] + 1;
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int neighbour = grid.passageNeighbor(current, direction);
+                if (neighbour == MazeGrid.NONE || distances[neighbour] != -1) {
+                    continue;
+                }
+                distances[neighbour] = next;
+                signs[neighbour >>> 5] |= (long) MazeGrid.opposite(direction) << ((neighbour & 31) << 1);
+                queue[tail++] = neighbour;
+            }
+        }
+        return new DistanceField(grid.width(), grid.height(), grid.contentHash(), head, distances, signs);
+    }
+
+    /**
+     * @return Returns the width of the maze the field was built from.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Returns the height of the maze the field was built from.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Returns the number of passages expanded building the field (every passage reachable from a source).
+     */
+    public long getNodesExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Returns the number of steps on a shortest route from the nearest source to a coordinate, in constant time.
+     *
+     * @param xCoord x coordinate of the target.
+     * @param yCoord y coordinate of the target.
+     * @return Returns the number of steps, or -1 if the coordinate is outside the maze, a wall or not reachable from any source.
+     */
+    public int distance(int xCoord, int yCoord) {
+        if (xCoord < 0 || yCoord < 0 || xCoord >= width || yCoord >= height) {
+            return -1;
+        }
+        return distances[yCoord * width + xCoord];
+    }
+
+    /**
+     * Reads off a shortest route from the nearest source to a coordinate by following the signs back, in time proportional to the length of the route.
+     *
+     * @param xCoord x coordinate of the target.
+     * @param yCoord y coordinate of the target.
+     * @return Returns the route from the nearest source (the first cell) to the target (the last cell), or a route which is not found if the target
+     * is not reachable. No passages are expanded reading a route.
+     */
+    public Route routeTo(int xCoord, int yCoord) {
+        int length = distance(xCoord, yCoord);
+        if (length < 0) {
+            return Route.notFound(0, 0);
+        }
+        int[] cells = new int[length + 1];
+        int cell = yCoord * width + xCoord;
+        for (int position = length; position > 0; position--) {
+            cells[position] = cell;
+            cell = step(cell, (int) (signs[cell >>> 5] >>> ((cell & 31) << 1)) & 3);
+        }
+        assert distances[cell] == 0;
+        cells[0] = cell;
+        return new Route(cells, 0, 0);
+    }
+
+    /**
+     * @return Returns the index of the cell one step from the cell in the direction (the step is known to stay within the maze).
+     */
+    private int step(int cell, int direction) {
+        switch (direction) {
+            case MazeGrid.NORTH:
+                return cell - width;
+            case MazeGrid.EAST:
+                return cell + 1;
+            case MazeGrid.SOUTH:
+                return cell + width;
+            default:
+                return cell - 1;
+        }
+    }
+
+    /**
+     * @param grid A grid.
+     * @return Returns true if the grid has the same size and cells as the maze the field was built from.
+     */
+    boolean matches(MazeGrid grid) {
+        return grid.width() == width && grid.height() == height && grid.contentHash() == gridHash;
+    }
+
+    /**
+     * Writes the field to a file, to be read back with read.
+     *
+     * @param file The file to write (replaced if it exists).
+     * @throws IOException Throws an IO exception if the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putLong(gridHash).putLong(expanded);
+            for (int distance : distances) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(distance);
+            }
+            for (long word : signs) {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(word);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes out everything held in the buffer and clears it.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a field written by write. Use GentrackMaze.readDistanceField to also check the field was built from that maze.
+     *
+     * @param file The file to read.
+     * @return Returns the field.
+     * @throws IOException Throws an IO exception if the file cannot be read, is not a distance field file or is shorter than its header says.
+     */
+    public static DistanceField read(File file) throws IOException {
+        Path path = file.toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_BYTES || !fill(channel, header) || header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a distance field file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(path + " is distance field format version " + header.getInt(4) + ", expected " + VERSION);
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            long cells = (long) width * height;
+            if (width <= 0 || height <= 0 || cells > Integer.MAX_VALUE
+                    || channel.size() < HEADER_BYTES + cells * Integer.BYTES + ((cells + 31) >>> 5) * Long.BYTES) {
+                throw new IOException(path + " is truncated or has an invalid header");
+            }
+            int[] distances = new int[(int) cells];
+            long[] signs = new long[(int) ((cells + 31) >>> 5)];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int offset = 0; offset < distances.length; ) {
+                buffer.clear().limit(Math.min(BUFFER_BYTES, (distances.length - offset) * Integer.BYTES));
+                fill(channel, buffer);
+                int count = buffer.remaining() / Integer.BYTES;
+                buffer.asIntBuffer().get(distances, offset, count);
+                offset += count;
+            }
+            for (int offset = 0; offset < signs.length; ) {
+                buffer.clear().limit(Math.min(BUFFER_BYTES, (signs.length - offset) * Long.BYTES));
+                fill(channel, buffer);
+                int count = buffer.remaining() / Long.BYTES;
+                buffer.asLongBuffer().get(signs, offset, count);
+                offset += count;
+            }
+            return new DistanceField(width, height, header.getLong(16), header.getLong(24), distances, signs);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full, then flips it.
+     *
+     * @return Returns false if the channel ended first.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * The string representation of the field.
+     *
+     * @return Returns the string representation of the field in the format DistanceField{width=.., height=.., nodesExpanded=..}.
+     */
+    @Override
+    public String toString() {
+        return "DistanceField{" +
+                "width=" + width +
+                ", height=" + height +
+                ", nodesExpanded=" + expanded +
+                '}';
+    }
+}
@@ -1,8 +1,21 @@
 package sys;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * <p>The GentrackMaze class provides topological information of a maze utilising the given information provided by a GenTrac file.
@@ -13,10 +26,11 @@ import java.util.*;
  * As a bespoke class (written at speed) the GenTrack maze class provides a constructor to populate topological information of the maze contained within the file format of a GenTrack maze file. To this end GentrackMaze file validation is not provided to maintain solution simplicity.
  * </p>
  * <p>
- * The approach further aims to improve solution speeds and simplify the requirements of the solution by caching only useful information to solving the maze (passages and their connections), which is performed via a depth first search.
+ * The approach further aims to improve solution speeds and simplify the requirements of the solution by caching only useful information to solving the maze (which cells are passages), which is performed via a depth first search.
+ * Passages are held in a packed MazeGrid (one bit per cell) and their connections are computed from the N/E/S/W offsets of each cell, so no object is allocated per passage.
  * This further aims to achieve looser coupling from the GentrackMaze file format by providing a maze solution using only the following details...
  * <ul>
- * <li>What passages exist (and what those passages have connections to).</li>
+ * <li>What passages exist (connections between passages follow from their coordinates).</li>
  * <li>Start and end coordinates (for start and end points of the maze).</li>
  * <li>Width and height of the maze.</li>
  * </ul>
@@ -29,10 +43,16 @@ import java.util.*;
  * It is possible to set the start and endpoints of the solution using the setter methods provided.
  * The maze can be printed using the solutionToString method (which assumes the solution has been solved).
  * </p>
+ * <p>
+ * The passage grid is never written to once the maze has been loaded, and searches keep their state (signs) to themselves.
+ * Any number of start and end pairs can therefore be solved against one maze at once with solve(Query, MazeSolver) or solveAll, without re-parsing the maze or holding a lock.
+ * The solve() and solutionToString methods keep the solved state of the file's own start and end and should not be shared between threads.
+ * </p>
  */
 public class GentrackMaze {
 
-    private Map<String, Passage> passageMap = new HashMap<>();
+    // Packed passage topology (one bit per cell).
+    private MazeGrid grid;
     // File input params.
     private int width;
     private int height;
@@ -41,124 +61,388 @@ public class GentrackMaze {
     private int endX;
     private int endY;
     // Configuration parameters (in-case you want to make your maze look different).
-    private final static char WALL = '#';
-    private final static char START = 'S';
-    private final static char END = 'E';
-    private final static char PATH = 'X';
-    private final static char PASSAGE = ' ';
+    final static char WALL = '#';
+    final static char START = 'S';
+    final static char END = 'E';
+    final static char PATH = 'X';
+    final static char PASSAGE = ' ';
+    // Search engine used by solve() when none is given.
+    private final static MazeSolver DEFAULT_SOLVER = new DepthFirstSolver();
+    // Search engine used by distance, which reuses its arrays per thread.
+    private final static WorkspaceSolver WORKSPACE_SOLVER = new WorkspaceSolver();
     // Holds whether a solution exists on the manifold.
     private boolean solved;
+    // Route found by the last search (null until the maze has been solved).
+    private Route route;
+    // Corridor-compressed graph of the passages (null until asked for).
+    private CorridorGraph corridorGraph;
+    // Connected component labels of the passages (null until asked for).
+    private volatile ComponentIndex componentIndex;
+    // Repairs the route of the maze's own start and end after edits (null until the maze is first edited, or once released).
+    // The planner holds roughly 12 bytes per cell (see IncrementalPlanner), far more than the grid itself.
+    private IncrementalPlanner planner;
+    // Holds whether the maze has ever been edited (so the start or end may have been walled over).
+    private boolean edited;
+    // Time taken to load the maze.
+    private long parseNanos;
+    // Stats of the last search of the maze's own start and end (null until the maze has been solved).
+    private SolveStats stats;
+    // Listeners told about the work done by every maze.
+    private final static List<SolveListener> LISTENERS = new CopyOnWriteArrayList<>();
 
     /**
-     * The GentrackMaze constructor parses a valid GentrackMaze file into an a GentrackMaze object and contained passage set.
+     * The GentrackMaze constructor parses a valid GentrackMaze file into an a GentrackMaze object and contained passage grid.
+     * The file is read through memory-mapped windows of its channel.
      *
      * @param file Input file.
      * @throws FileNotFoundException Throws a file not found execption if the file cannot be found.
+     * @throws IOException           Throws an IO exception if the file cannot be read or the maze has too many cells to hold on the heap (see TiledMaze).
+     */
+    public GentrackMaze(File file) throws IOException {
+        long began = System.nanoTime();
+        try (FileInputStream input = new FileInputStream(file)) {
+            load(new MazeReader(input.getChannel()));
+        }
+        parsed(System.nanoTime() - began);
+    }
+
+    /**
+     * The GentrackMaze constructor parses a valid GentrackMaze file from a stream (a socket or a pipe for instance). The stream is not closed.
+     *
+     * @param input Input stream positioned at the start of a GentrackMaze file.
+     * @throws IOException Throws an IO exception if the stream cannot be read or the maze has too many cells to hold on the heap (see TiledMaze).
+     */
+    public GentrackMaze(InputStream input) throws IOException {
+        this(Channels.newChannel(input));
+    }
+
+    /**
+     * The GentrackMaze constructor parses a valid GentrackMaze file from a channel. The channel is not closed.
+     *
+     * @param channel Input channel positioned at the start of a GentrackMaze file, in blocking mode.
+     * @throws IOException                  Throws an IO exception if the channel cannot be read or the maze has too many cells to hold on the heap (see TiledMaze).
+     * @throws IllegalBlockingModeException Throws an illegal blocking mode exception if the channel is in non-blocking mode.
+     */
+    public GentrackMaze(ReadableByteChannel channel) throws IOException {
+        long began = System.nanoTime();
+        load(new MazeReader(channel));
+        parsed(System.nanoTime() - began);
+    }
+
+    /**
+     * The GentrackMaze constructor parsing a GentrackMaze file from a reader set up by the caller (see SolutionCache, which parses the windows it hashed).
+     *
+     * @param reader The reader, positioned at the start of a GentrackMaze file.
+     * @throws IOException Throws an IO exception if the file cannot be read.
+     */
+    GentrackMaze(MazeReader reader) throws IOException {
+        long began = System.nanoTime();
+        load(reader);
+        parsed(System.nanoTime() - began);
+    }
+
+    /**
+     * The GentrackMaze constructor for a maze which has already been loaded (see BinaryMazeFormat).
+     *
+     * @param grid   The passage grid.
+     * @param startX x coordinate of the start.
+     * @param startY y coordinate of the start.
+     * @param endX   x coordinate of the end.
+     * @param endY   y coordinate of the end.
+     */
+    GentrackMaze(MazeGrid grid, int startX, int startY, int endX, int endY) {
+        this.grid = grid;
+        this.width = grid.width();
+        this.height = grid.height();
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
+
+    /**
+     * Loads a GentrackMaze file reading its cells on every thread of the common ForkJoinPool (see ParallelMazeReader).
+     *
+     * @param file Input file.
+     * @return Returns the maze.
+     * @throws IOException Throws an IO exception if the file cannot be read or the maze has too many cells to hold on the heap (see TiledMaze).
+     */
+    public static GentrackMaze openParallel(File file) throws IOException {
+        return openParallel(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a GentrackMaze file, splitting its cells into chunks which are read at the same time on the given pool.
+     * The maze is the same as the one loaded by the GentrackMaze(File) constructor, which reads the file on one thread.
+     *
+     * @param file Input file.
+     * @param pool The pool to read the chunks on.
+     * @return Returns the maze.
+     * @throws IOException Throws an IO exception if the file cannot be read or the maze has too many cells to hold on the heap (see TiledMaze).
+     */
+    public static GentrackMaze openParallel(File file, ForkJoinPool pool) throws IOException {
+        long began = System.nanoTime();
+        GentrackMaze maze;
+        try (FileInputStream input = new FileInputStream(file)) {
+            FileChannel channel = input.getChannel();
+            MazeReader header = new MazeReader(channel);
+            int width = header.nextInt();
+            int height = header.nextInt();
+            int startX = header.nextInt();
+            int startY = header.nextInt();
+            int endX = header.nextInt();
+            int endY = header.nextInt();
+            checkCells(width, height);
+            maze = new GentrackMaze(ParallelMazeReader.read(channel, header.position(), width, height, pool), startX, startY, endX, endY);
+        }
+        maze.parsed(System.nanoTime() - began);
+        return maze;
+    }
+
+    /**
+     * Opens a maze stored in the compact binary format (see BinaryMazeFormat). The file is memory-mapped and its cells copied straight into the passage grid.
+     *
+     * @param file A binary maze file.
+     * @return Returns the maze.
+     * @throws IOException Throws an IO exception if the file cannot be read or is not a binary maze file.
+     */
+    public static GentrackMaze openBinary(File file) throws IOException {
+        long began = System.nanoTime();
+        GentrackMaze maze = BinaryMazeFormat.read(file.toPath());
+        maze.parsed(System.nanoTime() - began);
+        return maze;
+    }
+
+    /**
+     * Saves the maze in the compact binary format (see BinaryMazeFormat), which can be reopened with openBinary.
+     *
+     * @param file The file to write.
+     * @throws IOException Throws an IO exception if the file cannot be written.
+     */
+    public void writeBinary(File file) throws IOException {
+        BinaryMazeFormat.write(this, file.toPath());
+    }
+
+    /**
+     * Adds a listener to be told about the work done by every maze (loading, solving and printing).
+     *
+     * @param listener The listener to add.
+     */
+    public static void addListener(SolveListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener added by addListener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static void removeListener(SolveListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Records the time taken to load the maze and tells the listeners.
+     *
+     * @param nanos Time taken to load the maze.
+     */
+    private void parsed(long nanos) {
+        this.parseNanos = nanos;
+        for (SolveListener listener : LISTENERS) {
+            listener.onParse(nanos);
+        }
+    }
+
+    /**
+     * Records the time taken to print the solution of the last solve and tells the listeners.
+     *
+     * @param nanos Time taken to print the solution.
      */
-    public GentrackMaze(File file) throws FileNotFoundException {
-        Scanner input = new Scanner(file);
+    private void rendered(long nanos) {
+        if (stats == null) {
+            // Printed without having been solved, there is no search to attach the time to.
+            return;
+        }
+        this.stats = stats.withRenderNanos(nanos);
+        for (SolveListener listener : LISTENERS) {
+            listener.onRender(stats);
+        }
+    }
+
+    /**
+     * @return Returns the stats of the last solve of the maze's own start and end (including the time taken to print it once printed), or null if the maze has not been solved.
+     */
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Checks the maze given by a file's header fits in a MazeGrid, before anything is allocated for it.
+     *
+     * @throws IOException Throws an IO exception if the maze has too many cells to hold on the heap.
+     */
+    private static void checkCells(int width, int height) throws IOException {
+        if ((long) width * height > MazeGrid.MAX_CELLS) {
+            throw new IOException("The maze is " + width + "x" + height + ", " + (long) width * height + " cells, too many to hold on the heap (open it with TiledMaze)");
+        }
+    }
+
+    /**
+     * Loads the parameters and passages of a GentrackMaze file.
+     *
+     * @param input A reader positioned at the start of the file.
+     * @throws IOException Throws an IO exception if the input cannot be read or the maze has too many cells to hold on the heap.
+     */
+    private void load(MazeReader input) throws IOException {
         /* Load the parameters from the file format...
         <WIDTH> <HEIGHT>
          <START_X> <START_Y>
          <END_X> <END_Y>.*/
-        String[] boundaries = input.nextLine().split(" ");
-        this.width = Integer.parseInt(boundaries[0]);
-        this.height = Integer.parseInt(boundaries[1]);
+        this.width = input.nextInt();
+        this.height = input.nextInt();
         // Set start coordinate and end coordinate passage.
-        String[] startCoords = input.nextLine().split(" ");
-        this.startX = Integer.parseInt(startCoords[0]);
-        this.startY = Integer.parseInt(startCoords[1]);
-        String[] endCoords = input.nextLine().split(" ");
-        this.endX = Integer.parseInt(endCoords[0]);
-        this.endY = Integer.parseInt(endCoords[1]);
-        // Read passages and build their neighbors during the process in one fell swoop.
-        // This is so we don't have to go back over the array twice which is the case if we store the whole file in memory and try to work with the individual character.
-        // We can know the y axis (or position) in the maze by keeping track of what line (horizontal segment of the maze) we are on.
-        // We can know the x axis (or position) in the maze by keeping track of what index the split string is on.
-        // This is sufficient information to build a set of passages (after some validation).
-        int yAxis = 0;
-        String[] previousYSegment = null;
-        while (input.hasNextLine() && input.hasNextInt()) {
-            String[] ySegment = input.nextLine().split(" ");
-            for (int xAxis = 0; xAxis < ySegment.length; xAxis++) {
-                if (ySegment[xAxis].equals("0")) {
-                    Passage passage = new Passage(xAxis, yAxis);
-                    passageMap.put(passage.toString(), passage);
-                    // If a passage exists directly above the passage we just added then we can connect to it.
-                    // The code should be written such that it is type-safe to retrieve the requested Passage.
-                    if (previousYSegment != null) {
-                        if (previousYSegment[xAxis].equals(ySegment[xAxis])) {
-                            // Assertions help debug sanity.
-                            assert passageExists(xAxis, yAxis - 1);
-                            Passage storedPassage = getPassage(xAxis, yAxis - 1);
-                            passage.addNeighbor(storedPassage);
-                            // We want this relationship to be symmetric (up and down traversal) so make sure we add it both ways.
-                            storedPassage.addNeighbor(passage);
-                        }
-                    }
-                    // If a passage exists directly to the left of a passage we just added then we can connect to it.
-                    if (ySegment[xAxis - 1] != null && ySegment[xAxis - 1].equals(ySegment[xAxis])) {
-                        assert passageExists(xAxis - 1, yAxis);
-                        Passage storedPassage = getPassage(xAxis - 1, yAxis);
-                        passage.addNeighbor(storedPassage);
-                        // We want this relationship to be symmetric (left and right traversal) so make sure we add it both ways.
-                        storedPassage.addNeighbor(passage);
-                    }
-                }
-            }
-            previousYSegment = ySegment;
-            yAxis++;
-        }
-        // Close the scanner (we're done reading the file).
-        input.close();
+        this.startX = input.nextInt();
+        this.startY = input.nextInt();
+        this.endX = input.nextInt();
+        this.endY = input.nextInt();
+        checkCells(width, height);
+        // Read passages into the grid.
+        // Cells are scanned as bytes in row order, so the index of a cell in the grid is simply the count of cells read before it.
+        // Connections between passages are not recorded, they follow from the coordinates of neighbouring cells.
+        this.grid = new MazeGrid(width, height);
+        input.readCells(grid);
     }
 
     /**
-     * getPassage is a helper method to simplify acquiring passages from the map of passages.
-     * This could be better coded as a getInstance method in after modularising the solution to more classes (depending on how many variations of passage objects you desire).
-     *
-     * @param xCoord x coordinate of the passage.
-     * @param yCoord y coordinate of the passage.
-     * @return Returns the associated passage.
+     * @return Returns the width of the maze.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Returns the height of the maze.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Returns the x coordinate of the start.
      */
-    private Passage getPassage(int xCoord, int yCoord) {
-        assert passageExists(xCoord, yCoord);
-        return passageMap.get("Passage{" + "x=" + xCoord + ", y=" + yCoord + '}');
+    public int getStartX() {
+        return startX;
+    }
+
+    /**
+     * @return Returns the y coordinate of the start.
+     */
+    public int getStartY() {
+        return startY;
+    }
+
+    /**
+     * @return Returns the x coordinate of the end.
+     */
+    public int getEndX() {
+        return endX;
+    }
+
+    /**
+     * @return Returns the y coordinate of the end.
+     */
+    public int getEndY() {
+        return endY;
+    }
+
+    /**
+     * @return Returns the passage grid of the maze (read-only).
+     */
+    public MazeGrid getGrid() {
+        return grid;
     }
 
     /**
      * Solves the maze from only file input to string. The method should not be ran without solving the maze first.
      * Future would will include making some minor adjustments so the tracePath method is agnostic as to whether the route from start to finish is solved.
+     * For large mazes prefer writeSolution, which streams the solution rather than building it in memory.
      *
      * @return Returns a string containing the solution.
      */
     public String solutionToString() {
         assert this.solved;
-        final List<Passage> routePassages = tracePath(startX, startY, endX, endY);
+        long began = System.nanoTime();
+        SolutionRenderer renderer = renderer();
+        byte[] bytes = new byte[renderer.rowLength()];
+        char[] row = new char[renderer.rowLength()];
         // Begin filling rows with walls in the range of the maze width and height adding the right notation as needed.
-        StringBuilder outString = new StringBuilder();
+        StringBuilder outString = new StringBuilder(renderer.rowLength() * height);
         for (int yCoord = 0; yCoord < height; yCoord++) {
-            for (int xCoord = 0; xCoord < width; xCoord++) {
-                if (passageExists(xCoord, yCoord)) {
-                    if (routePassages.contains(getPassage(xCoord, yCoord))) {
-                        if (xCoord == startX && yCoord == startY) {
-                            outString.append(START);
-                        } else if (xCoord == endX && yCoord == endY) {
-                            outString.append(END);
-                        } else {
-                            outString.append(PATH);
-                        }
-                    } else {
-                        outString.append(PASSAGE);
-                    }
-                    // If not a passage then must be a wall.
-                } else outString.append(WALL);
-            }
-            // New line (end of X).
-            outString.append("\n");
+            renderer.fillRow(yCoord, bytes, row);
+            outString.append(row);
+        }
+        String solution = outString.toString();
+        rendered(System.nanoTime() - began);
+        return solution;
+
+    }
+
+    /**
+     * Writes the solution to a writer row by row (in the same format as solutionToString) without building the whole solution in memory.
+     * The method should not be ran without solving the maze first. The writer is not buffered or closed by this method.
+     *
+     * @param out The writer to write the solution to.
+     * @throws IOException Throws an IO exception if the writer cannot be written to.
+     */
+    public void writeSolution(Writer out) throws IOException {
+        assert this.solved;
+        long began = System.nanoTime();
+        SolutionRenderer renderer = renderer();
+        byte[] bytes = new byte[renderer.rowLength()];
+        char[] row = new char[renderer.rowLength()];
+        for (int yCoord = 0; yCoord < height; yCoord++) {
+            renderer.fillRow(yCoord, bytes, row);
+            out.write(row);
+        }
+        out.flush();
+        rendered(System.nanoTime() - began);
+    }
+
+    /**
+     * Writes the solution to a stream as ASCII row by row (in the same format as solutionToString) through a single reused row buffer.
+     * The method should not be ran without solving the maze first. The stream is not buffered or closed by this method.
+     *
+     * @param out The stream to write the solution to.
+     * @throws IOException Throws an IO exception if the stream cannot be written to.
+     */
+    public void writeSolution(OutputStream out) throws IOException {
+        assert this.solved;
+        render(out);
+    }
+
+    /**
+     * Writes the maze to a stream as writeSolution does, marking the route if the maze has been solved and only the start and end if not.
+     *
+     * @param out The stream to write the maze to.
+     * @throws IOException Throws an IO exception if the stream cannot be written to.
+     */
+    void render(OutputStream out) throws IOException {
+        long began = System.nanoTime();
+        SolutionRenderer renderer = renderer();
+        byte[] row = new byte[renderer.rowLength()];
+        for (int yCoord = 0; yCoord < height; yCoord++) {
+            renderer.fillRow(yCoord, row);
+            out.write(row);
         }
-        return outString.toString();
+        out.flush();
+        rendered(System.nanoTime() - began);
+    }
 
+    /**
+     * @return Returns a renderer for the route found by the last solve.
+     */
+    private SolutionRenderer renderer() {
+        return new SolutionRenderer(grid, tracePath(startX, startY, endX, endY), grid.index(startX, startY), grid.index(endX, endY));
     }
 
     /**
@@ -175,102 +459,363 @@ public class GentrackMaze {
                 ", startY=" + startY +
                 ", endX=" + endX +
                 ", endY=" + endY +
-                ", maze=" + passageMap.toString() +
+                ", maze=" + grid.toString() +
                 '}';
     }
 
     /**
      * Solves the maze using input parameters. Flags the maze as solved if successful.
-     * The maze is solved by performing a bespoke depth first search through the object nodes and neighbours existing in memory.
-     * To preserve simplicity an overloaded method has not been provided.
-     * Future work could include creating a new set of interfaces providing details of each kinds of algorithm (perhaps providing an Algorithm class which provides meaningful functionality).
-     * * The method could be overloaded to provide start and end coordinates as an input parameter or by object handling.
+     * The maze is solved by performing the bespoke depth first search of the DepthFirstSolver over the passage grid.
+     * Once the maze has been edited (see setWall and setPassage) the shortest route is instead kept up to date by an incremental planner,
+     * which after the first solve only repairs the part of its search the edits since the last solve changed (see releasePlanner for its memory cost).
      *
      * @return Returns true if the maze has been solved, otherwise returns false.
      */
     public boolean solve() {
+        return solve(planner != null ? planner : DEFAULT_SOLVER);
+    }
+
+    /**
+     * Solves the maze using input parameters and the given search engine. Flags the maze as solved if successful.
+     * The route found (and the number of passages the engine expanded) is available from getRoute.
+     *
+     * @param solver The search engine to use, for example a BreadthFirstSolver for a shortest route.
+     * @return Returns true if the maze has been solved, otherwise returns false.
+     */
+    public boolean solve(MazeSolver solver) {
+        if (edited && (!passageExists(startX, startY) || !passageExists(endX, endY))) {
+            // The start or end has been walled over by an edit.
+            this.route = Route.notFound(0, 0);
+            this.solved = false;
+            return false;
+        }
         assert passageExists(startX, startY);
         assert passageExists(endX, endY);
-        Passage start = getPassage(startX, startY);
-        Passage end = getPassage(endX, endY);
-        // Begin a depth first search to solve the maze.
-        // Get the start node.
-        // Stack for backtracking.
-        // New stack of unseen passages.
-        Stack<Passage> unseenPassages = new Stack<>();
-        // Add to the stack the first passage.
-        unseenPassages.push(start);
-        // New set of seen passages which will define what we have visited..
-        Set<Passage> seenPassages = new HashSet<>();
-        // While the unseen passages is not empty.
-        while (!unseenPassages.isEmpty()) {
-            // Assume no knowledge of the next passage.
-            boolean routeEnd = true;
-            Passage currentPassage = unseenPassages.pop();
-            // Get neighbours from top of the stack.
-            Set<Passage> neighbors = currentPassage.getNeighbors();
-            // We know that we haven't reached the end of a route if there are neighbours unseen.
-            if (!seenPassages.containsAll(neighbors)) {
-                routeEnd = false;
-            }
-            // Append the current passage to seenPassages (this must take place before we check the neighbours).
-            seenPassages.add(currentPassage);
-            // If this is not the end of a route investigate whether passages in the route have been seen.
-            // If passages in the route have been seen then do not add to the stack, otherwise add to the stack.
-            if (!routeEnd) {
-                for (Passage passageNeighbour : neighbors) {
-                    if (!seenPassages.contains(passageNeighbour)) {
-                        //If this is the passage we need to get to then we need to keep track of that object.
-                        //We achieve this by assigning the object knowledge of what route was used to get there.
-                        passageNeighbour.setSign(currentPassage);
-                        if (passageNeighbour == end) {
-                            // If we reach the end then we have completed the search and can backtrack.
-                            this.solved = true;
-                            return true;
-                        }
-                        // If we don't, then push the neighbour to the stack to be searched.
-                        unseenPassages.push(passageNeighbour);
-                    }
+        this.route = search(solver, grid.index(startX, startY), grid.index(endX, endY), true);
+        this.solved = route.isFound();
+        return solved;
+    }
+
+    /**
+     * @return Returns the route found by the last solve, or null if the maze has not been solved (or has been edited since).
+     */
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Turns a cell into a wall in place. The route of the last solve is dropped, and the next solve() repairs it rather than solving from scratch.
+     * Edits are not safe to run at the same time as solves or queries on other threads.
+     *
+     * @param xCoord x coordinate.
+     * @param yCoord y coordinate.
+     */
+    public void setWall(int xCoord, int yCoord) {
+        edit(xCoord, yCoord, false);
+    }
+
+    /**
+     * Turns a cell into a passage in place. The route of the last solve is dropped, and the next solve() repairs it rather than solving from scratch.
+     * Edits are not safe to run at the same time as solves or queries on other threads.
+     *
+     * @param xCoord x coordinate.
+     * @param yCoord y coordinate.
+     */
+    public void setPassage(int xCoord, int yCoord) {
+        edit(xCoord, yCoord, true);
+    }
+
+    /**
+     * Releases the incremental planner created by the first edit, once a maze is done being edited.
+     * The planner keeps a distance and a lookahead for every cell plus the position of every cell in its open set (three ints, roughly 12 bytes a cell,
+     * against the single bit a cell of the grid), for as long as it is held. Once released solve() goes back to the depth first search of an unedited maze,
+     * and a later edit starts a new planner which searches from scratch on its first solve.
+     */
+    public synchronized void releasePlanner() {
+        this.planner = null;
+    }
+
+    /**
+     * Opens or closes a cell, dropping everything worked out from the old topology and telling the incremental planner (creating it on the first edit).
+     *
+     * @param xCoord  x coordinate.
+     * @param yCoord  y coordinate.
+     * @param passage True to open the cell, false to close it.
+     */
+    private synchronized void edit(int xCoord, int yCoord, boolean passage) {
+        assert grid.contains(xCoord, yCoord);
+        int cell = grid.index(xCoord, yCoord);
+        if (grid.isPassage(cell) == passage) {
+            return;
+        }
+        if (passage) {
+            grid.open(cell);
+        } else {
+            grid.close(cell);
+        }
+        // The corridor graph and component labels describe the old topology, they are rebuilt when next asked for.
+        this.corridorGraph = null;
+        this.componentIndex = null;
+        this.route = null;
+        this.solved = false;
+        this.edited = true;
+        if (planner == null) {
+            planner = new IncrementalPlanner(grid, grid.index(startX, startY), grid.index(endX, endY));
+        } else {
+            planner.cellChanged(cell);
+        }
+    }
+
+    /**
+     * Returns the corridor-compressed graph of the maze, building it on first use.
+     * Building the graph walks every passage once, after which a CorridorSolver over the graph expands junctions and dead-ends rather than every passage.
+     * This pays off when the same maze is solved repeatedly (see solveAll).
+     *
+     * @return Returns the corridor graph of the maze.
+     */
+    public synchronized CorridorGraph getCorridorGraph() {
+        if (corridorGraph == null) {
+            corridorGraph = new CorridorGraph(grid);
+        }
+        return corridorGraph;
+    }
+
+    /**
+     * Returns the connected component index of the maze, labelling every passage on first use.
+     * Once built, every solve first checks the index and answers queries with no route without searching.
+     *
+     * @return Returns the component index of the maze.
+     */
+    public ComponentIndex getComponentIndex() {
+        ComponentIndex index = componentIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (componentIndex == null) {
+                    componentIndex = new ComponentIndex(grid);
                 }
+                index = componentIndex;
             }
         }
-        this.solved = false;
-        return false;
+        return index;
+    }
+
+    /**
+     * Identifies whether a route exists between two coordinates, in constant time once the component index has been built (it is built on first use).
+     *
+     * @param fromXCoord x coordinate of the start.
+     * @param fromYCoord y coordinate of the start.
+     * @param toXCoord   x coordinate of the end.
+     * @param toYCoord   y coordinate of the end.
+     * @return Returns true if both coordinates are passages and a route exists between them.
+     */
+    public boolean isReachable(int fromXCoord, int fromYCoord, int toXCoord, int toYCoord) {
+        if (!passageExists(fromXCoord, fromYCoord) || !passageExists(toXCoord, toYCoord)) {
+            return false;
+        }
+        return getComponentIndex().isReachable(grid.index(fromXCoord, fromYCoord), grid.index(toXCoord, toYCoord));
+    }
+
+    /**
+     * Finds the number of steps on a shortest route between two coordinates without allocating once warmed up (see WorkspaceSolver).
+     * Like solve(Query, MazeSolver) the solved state of the maze is not touched, but no stats are recorded and listeners are not told, as both allocate.
+     * Safe to call from many threads at once.
+     *
+     * @param fromXCoord x coordinate of the start.
+     * @param fromYCoord y coordinate of the start.
+     * @param toXCoord   x coordinate of the end.
+     * @param toYCoord   y coordinate of the end.
+     * @return Returns the number of steps on a shortest route, or -1 if there is no route or either coordinate is not a passage.
+     */
+    public int distance(int fromXCoord, int fromYCoord, int toXCoord, int toYCoord) {
+        if (!passageExists(fromXCoord, fromYCoord) || !passageExists(toXCoord, toYCoord)) {
+            return -1;
+        }
+        return WORKSPACE_SOLVER.distance(grid, grid.index(fromXCoord, fromYCoord), grid.index(toXCoord, toYCoord));
     }
 
     /**
-     * Traces passage signs to produce a complete list of routes from start to finish.
+     * Finds the distance from a coordinate to every passage with a single breadth first search, for reading off the distance and route to many targets.
+     * The field is a snapshot, it is not updated by later edits.
      *
-     * @return Returns an empty route if the maze has not been solved. Returns a route if the maze has been solved.
+     * @param xCoord x coordinate of the source.
+     * @param yCoord y coordinate of the source.
+     * @return Returns the distance field of the source.
+     * @throws IllegalArgumentException Throws an illegal argument exception if the coordinate is not a passage.
      */
-    private List<Passage> tracePath(int fromXCoord, int fromYCoord, int toXCoord, int toYCoord) {
+    public DistanceField distanceField(int xCoord, int yCoord) {
+        return distanceField(new int[]{xCoord}, new int[]{yCoord});
+    }
+
+    /**
+     * Finds the distance from the nearest of several coordinates to every passage with a single breadth first search seeded with them all,
+     * for example to find the nearest of several exits (and the route to it) from anywhere in the maze. The field is a snapshot, it is not updated by later edits.
+     *
+     * @param xCoords x coordinates of the sources.
+     * @param yCoords y coordinates of the sources, in the same order.
+     * @return Returns the distance field of the sources.
+     * @throws IllegalArgumentException Throws an illegal argument exception if a coordinate is not a passage.
+     */
+    public DistanceField distanceField(int[] xCoords, int[] yCoords) {
+        assert xCoords.length == yCoords.length;
+        int[] sources = new int[xCoords.length];
+        for (int source = 0; source < sources.length; source++) {
+            if (!passageExists(xCoords[source], yCoords[source])) {
+                throw new IllegalArgumentException("(" + xCoords[source] + ", " + yCoords[source] + ") is not a passage");
+            }
+            sources[source] = grid.index(xCoords[source], yCoords[source]);
+        }
+        return DistanceField.build(grid, sources);
+    }
+
+    /**
+     * Finds the distances between every pair of a set of coordinates, with one breadth first search per coordinate (each field is dropped once read).
+     *
+     * @param xCoords x coordinates of the points.
+     * @param yCoords y coordinates of the points, in the same order.
+     * @return Returns the matrix of distances, [from][to], holding -1 where there is no route.
+     * @throws IllegalArgumentException Throws an illegal argument exception if a coordinate is not a passage.
+     */
+    public int[][] distanceMatrix(int[] xCoords, int[] yCoords) {
+        assert xCoords.length == yCoords.length;
+        int[][] matrix = new int[xCoords.length][xCoords.length];
+        for (int from = 0; from < xCoords.length; from++) {
+            DistanceField field = distanceField(xCoords[from], yCoords[from]);
+            for (int to = 0; to < xCoords.length; to++) {
+                matrix[from][to] = field.distance(xCoords[to], yCoords[to]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Reads a distance field saved with DistanceField.write, checking it was built from a maze with the same cells as this one.
+     *
+     * @param file The file to read.
+     * @return Returns the field.
+     * @throws IOException Throws an IO exception if the file cannot be read, is not a distance field file or was built from a different maze.
+     */
+    public DistanceField readDistanceField(File file) throws IOException {
+        DistanceField field = DistanceField.read(file);
+        if (!field.matches(grid)) {
+            throw new IOException(file + " was built from a different maze");
+        }
+        return field;
+    }
+
+    /**
+     * Solves a single query against the maze without touching the solved state of the maze (the start and end read from the file).
+     * The topology of the maze is never written to by a search and each search holds its own signs, so this method is safe to call from many threads at once.
+     *
+     * @param query  The start and end coordinates.
+     * @param solver The search engine to use.
+     * @return Returns the route found. The route is not found if either coordinate is not a passage.
+     */
+    public Route solve(Query query, MazeSolver solver) {
+        if (!passageExists(query.getStartX(), query.getStartY()) || !passageExists(query.getEndX(), query.getEndY())) {
+            return Route.notFound(0, 0);
+        }
+        return search(solver, grid.index(query.getStartX(), query.getStartY()), grid.index(query.getEndX(), query.getEndY()), false);
+    }
+
+    /**
+     * Runs a search, unless the component index has been built and shows the end cannot be reached from the start.
+     * The search is timed and its stats passed to the listeners.
+     *
+     * @param solver The search engine to use.
+     * @param start  Cell index of the start passage.
+     * @param end    Cell index of the end passage.
+     * @param own    True if this is the maze's own start and end, in which case the stats are kept (see getStats).
+     * @return Returns the route found.
+     */
+    private Route search(MazeSolver solver, int start, int end, boolean own) {
+        long began = System.nanoTime();
+        ComponentIndex index = componentIndex;
+        Route found;
+        if (index != null && !index.isReachable(start, end)) {
+            found = Route.notFound(0, 0);
+        } else {
+            found = solver.solve(grid, start, end);
+        }
+        SolveStats searched = new SolveStats(parseNanos, System.nanoTime() - began, found.nodesExpanded(), found.peakFrontier(), found.length(), -1);
+        if (own) {
+            this.stats = searched;
+        }
+        for (SolveListener listener : LISTENERS) {
+            listener.onSolve(searched);
+        }
+        return found;
+    }
+
+    /**
+     * Solves many queries against the maze in parallel on the common ForkJoinPool using the default search engine.
+     *
+     * @param queries The queries to solve.
+     * @return Returns a route per query, in the order of the queries.
+     */
+    public List<Route> solveAll(List<Query> queries) {
+        return solveAll(queries, DEFAULT_SOLVER, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves many queries against the maze in parallel on the common ForkJoinPool.
+     *
+     * @param queries The queries to solve.
+     * @param solver  The search engine to use (engines hold no search state so one engine is shared by every query).
+     * @return Returns a route per query, in the order of the queries.
+     */
+    public List<Route> solveAll(List<Query> queries, MazeSolver solver) {
+        return solveAll(queries, solver, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves many queries against the maze in parallel, fanning one task per query out over the given pool.
+     * The component index is built first, so queries with no route are answered without searching.
+     *
+     * @param queries The queries to solve.
+     * @param solver  The search engine to use (engines hold no search state so one engine is shared by every query).
+     * @param pool    The pool to solve the queries on.
+     * @return Returns a route per query, in the order of the queries.
+     */
+    public List<Route> solveAll(List<Query> queries, MazeSolver solver, ForkJoinPool pool) {
+        // Label the components once up front so unreachable queries are answered without a search.
+        getComponentIndex();
+        List<ForkJoinTask<Route>> tasks = new ArrayList<>(queries.size());
+        for (Query query : queries) {
+            tasks.add(pool.submit(() -> solve(query, solver)));
+        }
+        List<Route> routes = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<Route> task : tasks) {
+            routes.add(task.join());
+        }
+        return routes;
+    }
+
+    /**
+     * Traces the route found by the last solve from start to finish.
+     *
+     * @return Returns an empty route if the maze has not been solved. Returns the cell indices of the route if the maze has been solved.
+     */
+    private int[] tracePath(int fromXCoord, int fromYCoord, int toXCoord, int toYCoord) {
+        if (!solved) {
+            return new int[0];
+        }
         // Asserts input parameters are true.
         assert passageExists(fromXCoord, fromYCoord);
         assert passageExists(toXCoord, toYCoord);
-        List<Passage> route = new LinkedList<>();
-        if (!solved) {
-            return route;
-        }
-        Passage startPassage = getPassage(fromXCoord, fromYCoord);
-        Passage currPassage = getPassage(toXCoord, toYCoord);
-        while (currPassage != startPassage) {
-            assert currPassage.hasSign();
-            // Add the current passage to the front of the list.
-            route.add(0, currPassage);
-            currPassage = currPassage.getSign();
-        }
-        route.add(0, startPassage);
-        return route;
+        int[] cells = route.cellArray();
+        assert cells[0] == grid.index(fromXCoord, fromYCoord);
+        assert cells[cells.length - 1] == grid.index(toXCoord, toYCoord);
+        return cells;
     }
 
     /**
-     * Identifies whether the package exists.
+     * Identifies whether the passage exists.
      *
-     * @param xCoord The x coordinate of the package.
-     * @param yCoord The y coordinate of the package.
-     * @return Returns whether the package exists.
+     * @param xCoord The x coordinate of the passage.
+     * @param yCoord The y coordinate of the passage.
+     * @return Returns whether the passage exists.
      */
     private boolean passageExists(int xCoord, int yCoord) {
-        return passageMap.containsKey("Passage{" + "x=" + xCoord + ", y=" + yCoord + '}');
+        return grid.isPassage(xCoord, yCoord);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package sys;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of non-negative values using power of two buckets (bucket b counts values in [2^(b-1), 2^b), bucket 0 counts zero).
+ * Recording is a couple of atomic increments, so a histogram can sit on the hot path of every solve.
+ * Percentiles are reported as the upper bound of the bucket they fall in, which is within a factor of two of the true value.
+ */
+public final class Histogram {
+    private static final int BUCKETS = 64;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value (negative values are recorded as zero).
+     *
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return Returns the number of values recorded.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return Returns the sum of the values recorded.
+     */
+    public long sum() {
+        return sum.get();
+    }
+
+    /**
+     * @return Returns the largest value recorded.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return Returns the mean of the values recorded, or zero if none have been recorded.
+     */
+    public double mean() {
+        long values = count.get();
+        return values == 0 ? 0 : (double) sum.get() / values;
+    }
+
+    /**
+     * Estimates a percentile of the values recorded.
+     *
+     * @param percentile The percentile between 0 and 100.
+     * @return Returns the upper bound of the bucket holding the percentile (capped at the largest value recorded), or zero if none have been recorded.
+     */
+    public long percentile(double percentile) {
+        long values = count.get();
+        if (values == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(values * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return Returns the count of every bucket, bucket b holding values below 2^b.
+     */
+    public long[] buckets() {
+        long[] counts = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = buckets.get(bucket);
+        }
+        return counts;
+    }
+
+    /**
+     * Clears every value recorded.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            buckets.set(bucket, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @param bucket A bucket.
+     * @return Returns the largest value the bucket counts.
+     */
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,258 @@
+package sys;
+
+import java.util.Arrays;
+
+/**
+ * <p>The IncrementalPlanner keeps a shortest route between the start and end of an edited maze up to date with Lifelong Planning A* (LPA*).
+ * Every cell holds its distance from the start as of the last search and a one step lookahead of that distance from its neighbours.
+ * A cell whose two values differ is inconsistent and sits in the open set, and a search only expands inconsistent cells (in A* order, using the Manhattan distance to the end)
+ * until the end is consistent and nothing left open could shorten its route.
+ * </p>
+ * <p>
+ * The first search expands roughly what an A* search would. After a cell is opened or closed only the cell and its neighbours are made inconsistent,
+ * so the next search repairs the distances the edit actually changed rather than searching from scratch.
+ * </p>
+ * <p>
+ * The planner holds search state for one start and end of one grid, so unlike the other engines it is neither stateless nor safe to share between threads.
+ * That state is three ints per cell (distance, lookahead and open set position), roughly 12 bytes a cell or about a hundred times the grid,
+ * allocated when the planner is created on the first edit of a maze and held until GentrackMaze.releasePlanner drops it.
+ * </p>
+ */
+final class IncrementalPlanner implements MazeSolver {
+    // Distance of a cell which cannot be reached (one step further still fits in an int).
+    private static final int INFINITE = Integer.MAX_VALUE - 1;
+    private final MazeGrid grid;
+    private final int start;
+    private final int end;
+    // Distance of each cell from the start as of the last search.
+    private final int[] distances;
+    // One step lookahead of the distance of each cell: one more than the least distance of its neighbouring passages (0 for the start).
+    private final int[] lookaheads;
+    private final OpenSet open;
+
+    /**
+     * IncrementalPlanner constructor. Nothing is searched until solve is called.
+     *
+     * @param grid  The grid to plan over, which may be edited between searches (see cellChanged).
+     * @param start Cell index of the start.
+     * @param end   Cell index of the end.
+     */
+    IncrementalPlanner(MazeGrid grid, int start, int end) {
+        this.grid = grid;
+        this.start = start;
+        this.end = end;
+        this.distances = new int[grid.size()];
+        this.lookaheads = new int[grid.size()];
+        this.open = new OpenSet(grid.size());
+        Arrays.fill(distances, INFINITE);
+        Arrays.fill(lookaheads, INFINITE);
+        update(start);
+    }
+
+    /**
+     * Tells the planner a cell has been opened or closed. The cell and its neighbours are made consistent with their neighbours again
+     * (or queued as inconsistent), and the change is repaired by the next search.
+     *
+     * @param cell The cell index which changed.
+     */
+    void cellChanged(int cell) {
+        update(cell);
+        for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+            int next = grid.neighbor(cell, direction);
+            if (next != MazeGrid.NONE) {
+                update(next);
+            }
+        }
+    }
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        assert grid == this.grid;
+        assert start == this.start;
+        assert end == this.end;
+        long expanded = 0;
+        int peakFrontier = open.size();
+        while (open.topKey() < key(end) || lookaheads[end] != distances[end]) {
+            int cell = open.pop();
+            expanded++;
+            if (distances[cell] > lookaheads[cell]) {
+                // Overconsistent, a shorter route to the cell has been found so settle it and pass the change on to its neighbours.
+                distances[cell] = lookaheads[cell];
+            } else {
+                // Underconsistent, the route the cell was settled by has gone so forget it and work the cell out again.
+                distances[cell] = INFINITE;
+                update(cell);
+            }
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int next = grid.neighbor(cell, direction);
+                if (next != MazeGrid.NONE) {
+                    update(next);
+                }
+            }
+            peakFrontier = Math.max(peakFrontier, open.size());
+        }
+        if (distances[end] == INFINITE) {
+            return Route.notFound(expanded, peakFrontier);
+        }
+        // Walk back from the end, always stepping to the neighbouring passage closest to the start.
+        int[] cells = new int[distances[end] + 1];
+        int cell = end;
+        for (int step = cells.length - 1; step > 0; step--) {
+            cells[step] = cell;
+            int closest = MazeGrid.NONE;
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int next = grid.passageNeighbor(cell, direction);
+                if (next != MazeGrid.NONE && (closest == MazeGrid.NONE || distances[next] < distances[closest])) {
+                    closest = next;
+                }
+            }
+            assert distances[closest] == distances[cell] - 1;
+            cell = closest;
+        }
+        assert cell == start;
+        cells[0] = cell;
+        return new Route(cells, expanded, peakFrontier);
+    }
+
+    /**
+     * Works out the lookahead of a cell from its neighbours, and queues the cell if it is inconsistent (or takes it out of the queue if it is not).
+     *
+     * @param cell A cell index on the grid.
+     */
+    private void update(int cell) {
+        int lookahead = INFINITE;
+        if (grid.isPassage(cell)) {
+            if (cell == start) {
+                lookahead = 0;
+            } else {
+                for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                    int next = grid.passageNeighbor(cell, direction);
+                    if (next != MazeGrid.NONE) {
+                        lookahead = Math.min(lookahead, distances[next] + 1);
+                    }
+                }
+            }
+        }
+        lookaheads[cell] = lookahead;
+        if (open.contains(cell)) {
+            open.remove(cell);
+        }
+        if (distances[cell] != lookahead) {
+            open.insert(cell, key(cell));
+        }
+    }
+
+    /**
+     * The priority of a cell in the open set: the least of its distance and lookahead plus the Manhattan distance to the end, with ties broken by the least of its distance and lookahead.
+     * Both parts are packed into one long (the first part needs 32 bits, the second 31) so keys compare as plain longs.
+     *
+     * @param cell A cell index on the grid.
+     * @return Returns the key of the cell.
+     */
+    private long key(int cell) {
+        long least = Math.min(distances[cell], lookaheads[cell]);
+        long estimate = least + Math.abs(grid.xOf(cell) - grid.xOf(end)) + Math.abs(grid.yOf(cell) - grid.yOf(end));
+        return (estimate << 31) | least;
+    }
+
+    /**
+     * A binary min-heap of cells keyed by priority which tracks where each cell is held, so a cell can be taken out or requeued in place.
+     */
+    private static final class OpenSet {
+        // Position of each cell in the heap, or -1 if it is not held.
+        private final int[] positions;
+        private int[] cells = new int[64];
+        private long[] keys = new long[64];
+        private int size;
+
+        OpenSet(int cellCount) {
+            positions = new int[cellCount];
+            Arrays.fill(positions, -1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int cell) {
+            return positions[cell] != -1;
+        }
+
+        /**
+         * @return Returns the least key held, or Long.MAX_VALUE if the set is empty.
+         */
+        long topKey() {
+            return size == 0 ? Long.MAX_VALUE : keys[0];
+        }
+
+        void insert(int cell, long key) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size << 1);
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+            siftUp(size++, cell, key);
+        }
+
+        int pop() {
+            int top = cells[0];
+            removeAt(0);
+            return top;
+        }
+
+        void remove(int cell) {
+            removeAt(positions[cell]);
+        }
+
+        private void removeAt(int position) {
+            positions[cells[position]] = -1;
+            size--;
+            if (position == size) {
+                return;
+            }
+            // Move the last entry into the gap, then restore the heap in whichever direction the entry is out of order.
+            int cell = cells[size];
+            long key = keys[size];
+            if (position > 0 && key < keys[(position - 1) >>> 1]) {
+                siftUp(position, cell, key);
+            } else {
+                siftDown(position, cell, key);
+            }
+        }
+
+        private void siftUp(int position, int cell, long key) {
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                place(position, cells[parent], keys[parent]);
+                position = parent;
+            }
+            place(position, cell, key);
+        }
+
+        private void siftDown(int position, int cell, long key) {
+            while (true) {
+                int child = (position << 1) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                place(position, cells[child], keys[child]);
+                position = child;
+            }
+            place(position, cell, key);
+        }
+
+        private void place(int position, int cell, long key) {
+            cells[position] = cell;
+            keys[position] = key;
+            positions[cell] = position;
+        }
+    }
+}
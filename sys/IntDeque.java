@@ -0,0 +1,100 @@
+package sys;
+
+/**
+ * A growable ring buffer of primitive ints used as the frontier of the searches (a stack, a queue or both).
+ * Unlike java.util.Stack or ArrayDeque of Integer it does not box cell indices and is not synchronized.
+ */
+final class IntDeque {
+    private int[] elements;
+    // Index of the first element.
+    private int head;
+    private int size;
+
+    /**
+     * IntDeque constructor.
+     *
+     * @param capacity Initial capacity (rounded up to a power of two).
+     */
+    IntDeque(int capacity) {
+        elements = new int[Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1];
+    }
+
+    /**
+     * @return Returns the number of elements held.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Returns true if no elements are held.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every element (the capacity is kept for reuse).
+     */
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds an element to the back of the deque.
+     *
+     * @param value The element.
+     */
+    void addLast(int value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size++) & (elements.length - 1)] = value;
+    }
+
+    /**
+     * Removes the element at the front of the deque (queue order).
+     *
+     * @return Returns the removed element.
+     */
+    int pollFirst() {
+        assert size > 0;
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * Removes the element at the back of the deque (stack order).
+     *
+     * @return Returns the removed element.
+     */
+    int pollLast() {
+        assert size > 0;
+        return elements[(head + --size) & (elements.length - 1)];
+    }
+
+    /**
+     * Returns an element by its position from the front of the deque.
+     *
+     * @param position Position from the front (0 is the first element).
+     * @return Returns the element.
+     */
+    int get(int position) {
+        assert position >= 0 && position < size;
+        return elements[(head + position) & (elements.length - 1)];
+    }
+
+    /**
+     * Doubles the capacity, unwrapping the ring so the first element moves to the start of the array.
+     */
+    private void grow() {
+        int[] grown = new int[elements.length << 1];
+        System.arraycopy(elements, head, grown, 0, elements.length - head);
+        System.arraycopy(elements, 0, grown, elements.length - head, head);
+        elements = grown;
+        head = 0;
+    }
+}
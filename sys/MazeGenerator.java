@@ -0,0 +1,351 @@
+package sys;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>The MazeGenerator writes seeded mazes of any size in the GentrackMaze text format, for testing at sizes and shapes the bin/ fixtures do not cover.
+ * Mazes are written a row at a time and only a row or two of state is held, so a maze far larger than the heap (or the disk, for that matter) can be streamed out.
+ * The same seed, topology and size always writes the same maze.
+ * </p>
+ * <p>
+ * Rooms sit on odd coordinates with walls (or openings) between them, the start is the upper left room and the end is the lower right room
+ * (the far end of the last corridor of a serpentine). An even width or height leaves an extra wall along the right or bottom edge.
+ * </p>
+ */
+public final class MazeGenerator {
+    // The number of rooms (odd coordinates) along each side of an open room of the ROOMS topology.
+    private static final int ROOM_SIZE = 8;
+    private final long seed;
+
+    /**
+     * The shapes of maze the generator writes.
+     */
+    public enum Topology {
+        // A maze with exactly one route between any two rooms, carved with Eller's algorithm.
+        PERFECT,
+        // Open rooms (like bin/sparse_medium.txt) walled off from each other, with a doorway through every wall.
+        ROOMS,
+        // One long corridor winding back and forth across the whole maze.
+        SERPENTINE,
+        // A perfect maze with the last row of rooms walled off, so the end cannot be reached and a search must visit everything else.
+        UNSOLVABLE
+    }
+
+    /**
+     * MazeGenerator constructor.
+     *
+     * @param seed The seed of the random choices made whilst carving.
+     */
+    public MazeGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes a maze to a file.
+     *
+     * @param topology The shape of the maze.
+     * @param width    Width of the maze (at least 3).
+     * @param height   Height of the maze (at least 3, or 5 for an unsolvable maze).
+     * @param file     The file to write (replaced if it exists).
+     * @throws IOException Throws an IO exception if the file cannot be written.
+     */
+    public void write(Topology topology, int width, int height, File file) throws IOException {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII), 1 << 16)) {
+            write(topology, width, height, out);
+        }
+    }
+
+    /**
+     * Writes a maze in the GentrackMaze text format, one row at a time. The writer is not closed.
+     *
+     * @param topology The shape of the maze.
+     * @param width    Width of the maze (at least 3).
+     * @param height   Height of the maze (at least 3, or 5 for an unsolvable maze).
+     * @param out      The writer to write to.
+     * @throws IOException Throws an IO exception if the writer cannot be written.
+     */
+    public void write(Topology topology, int width, int height, Writer out) throws IOException {
+        if (width < 3 || height < 3) {
+            throw new IllegalArgumentException("A maze must be at least 3x3, not " + width + "x" + height);
+        }
+        if (topology == Topology.UNSOLVABLE && height < 5) {
+            // The end is walled off from the row of rooms above it, so there must be one.
+            throw new IllegalArgumentException("An unsolvable maze must be at least 5 high, not " + height);
+        }
+        Rows rows = new Rows(width, (width - 1) / 2, out);
+        int roomsDown = (height - 1) / 2;
+        int endY = roomsDown * 2 - 1;
+        int endX = topology == Topology.SERPENTINE && (roomsDown & 1) == 0 ? 1 : rows.rooms * 2 - 1;
+        out.write(width + " " + height + "\n1 1\n" + endX + " " + endY + "\n");
+        // Top wall.
+        rows.writeWall();
+        switch (topology) {
+            case PERFECT:
+            case UNSOLVABLE:
+                writeEller(rows, roomsDown, topology == Topology.UNSOLVABLE);
+                break;
+            case ROOMS:
+                writeRooms(rows, roomsDown);
+                break;
+            case SERPENTINE:
+                writeSerpentine(rows, roomsDown);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown topology " + topology);
+        }
+        // Bottom wall, and the extra wall of an even height.
+        for (int y = roomsDown * 2; y < height; y++) {
+            rows.writeWall();
+        }
+    }
+
+    /**
+     * Carves a perfect maze with Eller's algorithm, which works down the maze a row of rooms at a time.
+     * Each room of the row belongs to a set of rooms already joined together. Neighbouring rooms of different sets are joined at random, then every set
+     * opens downwards at least once (at random beyond that) so nothing is cut off. The last row joins every set that remains.
+     *
+     * @param rows      The rows being written.
+     * @param roomsDown The number of rows of rooms.
+     * @param sealLast  True to wall off the last row of rooms from the rest of the maze.
+     */
+    private void writeEller(Rows rows, int roomsDown, boolean sealLast) throws IOException {
+        final int rooms = rows.rooms;
+        Random random = new Random(seed);
+        // The set of each room of the current row, and the union-find parents of the sets (set ids are renumbered each row so they stay below the number of rooms).
+        int[] sets = new int[rooms];
+        int[] parents = new int[rooms];
+        int[] renumbered = new int[rooms];
+        boolean[] east = new boolean[rooms];
+        boolean[] down = new boolean[rooms];
+        boolean[] setGoesDown = new boolean[rooms];
+        for (int room = 0; room < rooms; room++) {
+            sets[room] = room;
+        }
+        for (int roomY = 0; roomY < roomsDown; roomY++) {
+            boolean last = roomY == roomsDown - 1;
+            // When sealing, the row above the last row is finished off like a last row, so the rooms above the seal are still all joined together.
+            boolean sealed = sealLast && roomY == roomsDown - 2;
+            for (int set = 0; set < rooms; set++) {
+                parents[set] = set;
+            }
+            for (int room = 0; room + 1 < rooms; room++) {
+                int west = find(parents, sets[room]);
+                int next = find(parents, sets[room + 1]);
+                east[room] = west != next && (last || sealed || random.nextBoolean());
+                if (east[room]) {
+                    parents[next] = west;
+                }
+            }
+            rows.writeRooms(east);
+            if (last) {
+                break;
+            }
+            Arrays.fill(down, false);
+            if (!sealed) {
+                Arrays.fill(setGoesDown, false);
+                for (int room = 0; room < rooms; room++) {
+                    down[room] = random.nextBoolean();
+                    if (down[room]) {
+                        setGoesDown[find(parents, sets[room])] = true;
+                    }
+                }
+                for (int room = 0; room < rooms; room++) {
+                    int set = find(parents, sets[room]);
+                    if (!setGoesDown[set]) {
+                        down[room] = true;
+                        setGoesDown[set] = true;
+                    }
+                }
+            }
+            rows.writeOpenings(down);
+            // Rooms opened from above keep the set of the room above (renumbered), the rest start sets of their own.
+            Arrays.fill(renumbered, -1);
+            int nextSet = 0;
+            for (int room = 0; room < rooms; room++) {
+                if (down[room]) {
+                    int set = find(parents, sets[room]);
+                    if (renumbered[set] == -1) {
+                        renumbered[set] = nextSet++;
+                    }
+                    sets[room] = renumbered[set];
+                } else {
+                    sets[room] = -1;
+                }
+            }
+            for (int room = 0; room < rooms; room++) {
+                if (sets[room] == -1) {
+                    sets[room] = nextSet++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Returns the root of the set, compressing the path to it.
+     */
+    private static int find(int[] parents, int set) {
+        while (parents[set] != set) {
+            parents[set] = parents[parents[set]];
+            set = parents[set];
+        }
+        return set;
+    }
+
+    /**
+     * Writes open rooms of ROOM_SIZE by ROOM_SIZE rooms (the last along each side may be smaller), with a doorway at a random position through each wall between two rooms.
+     *
+     * @param rows      The rows being written.
+     * @param roomsDown The number of rows of rooms.
+     */
+    private void writeRooms(Rows rows, int roomsDown) throws IOException {
+        final int rooms = rows.rooms;
+        Random random = new Random(seed);
+        boolean[] east = new boolean[rooms];
+        boolean[] down = new boolean[rooms];
+        // Whether each room shares an open room with the room to its east, in which case the wall cells between them are opened all the way down the band.
+        boolean[] inside = new boolean[rooms];
+        for (int room = 0; room + 1 < rooms; room++) {
+            inside[room] = (room + 1) % ROOM_SIZE != 0;
+        }
+        // The row (within the current band of open rooms) of the doorway through the wall east of each room, used where the room is the last of its open room.
+        int[] doorRow = new int[rooms];
+        for (int roomY = 0; roomY < roomsDown; roomY++) {
+            int band = roomY % ROOM_SIZE;
+            if (band == 0) {
+                for (int room = 0; room < rooms; room++) {
+                    doorRow[room] = random.nextInt(Math.min(ROOM_SIZE, roomsDown - roomY));
+                }
+            }
+            for (int room = 0; room + 1 < rooms; room++) {
+                // Rooms within one open room are joined, rooms either side of a wall between open rooms only at its doorway.
+                east[room] = inside[room] || doorRow[room] == band;
+            }
+            rows.writeRooms(east);
+            if (roomY == roomsDown - 1) {
+                break;
+            }
+            if (band == ROOM_SIZE - 1) {
+                // A wall between bands of open rooms, with a doorway at a random position through each open room's stretch of it.
+                Arrays.fill(down, false);
+                for (int room = 0; room < rooms; room += ROOM_SIZE) {
+                    down[room + random.nextInt(Math.min(ROOM_SIZE, rooms - room))] = true;
+                }
+                rows.writeOpenings(down);
+            } else {
+                Arrays.fill(down, true);
+                rows.writeOpenings(down, inside);
+            }
+        }
+    }
+
+    /**
+     * Writes a single corridor along each row of rooms, joined to the next row alternately at the right and left end.
+     *
+     * @param rows      The rows being written.
+     * @param roomsDown The number of rows of rooms.
+     */
+    private static void writeSerpentine(Rows rows, int roomsDown) throws IOException {
+        final int rooms = rows.rooms;
+        boolean[] east = new boolean[rooms];
+        boolean[] down = new boolean[rooms];
+        Arrays.fill(east, true);
+        for (int roomY = 0; roomY < roomsDown; roomY++) {
+            rows.writeRooms(east);
+            if (roomY == roomsDown - 1) {
+                break;
+            }
+            Arrays.fill(down, false);
+            down[(roomY & 1) == 0 ? rooms - 1 : 0] = true;
+            rows.writeOpenings(down);
+        }
+    }
+
+    /**
+     * Writes the rows of a maze through a reused row buffer.
+     */
+    private static final class Rows {
+        private final int width;
+        private final int rooms;
+        private final Writer out;
+        // Cells separated by spaces and ended by a new line, as in the bin/ fixtures.
+        private final char[] row;
+
+        Rows(int width, int rooms, Writer out) {
+            this.width = width;
+            this.rooms = rooms;
+            this.out = out;
+            this.row = new char[width * 2];
+            for (int x = 0; x < width; x++) {
+                row[x * 2 + 1] = x == width - 1 ? '\n' : ' ';
+            }
+        }
+
+        private void set(int x, boolean open) {
+            row[x * 2] = open ? '0' : '1';
+        }
+
+        /**
+         * Writes a row of walls.
+         */
+        void writeWall() throws IOException {
+            for (int x = 0; x < width; x++) {
+                set(x, false);
+            }
+            out.write(row);
+        }
+
+        /**
+         * Writes a row of rooms.
+         *
+         * @param east Whether each room opens to the room to its east (ignored for the last room).
+         */
+        void writeRooms(boolean[] east) throws IOException {
+            for (int x = 0; x < width; x++) {
+                set(x, false);
+            }
+            for (int room = 0; room < rooms; room++) {
+                set(room * 2 + 1, true);
+                if (room + 1 < rooms && east[room]) {
+                    set(room * 2 + 2, true);
+                }
+            }
+            out.write(row);
+        }
+
+        /**
+         * Writes the wall row between two rows of rooms.
+         *
+         * @param down Whether each room opens to the room below it.
+         */
+        void writeOpenings(boolean[] down) throws IOException {
+            writeOpenings(down, null);
+        }
+
+        /**
+         * Writes the wall row between two rows of rooms, also opening the cell between two rooms which open downwards and are joined to each other,
+         * so the four rooms either side of it are one open space rather than a ring around a pillar.
+         *
+         * @param down   Whether each room opens to the room below it.
+         * @param joined Whether each room is joined to the room to its east (ignored for the last room), or null if no cell between rooms is opened.
+         */
+        void writeOpenings(boolean[] down, boolean[] joined) throws IOException {
+            for (int x = 0; x < width; x++) {
+                set(x, false);
+            }
+            for (int room = 0; room < rooms; room++) {
+                set(room * 2 + 1, down[room]);
+                if (joined != null && room + 1 < rooms && joined[room] && down[room] && down[room + 1]) {
+                    set(room * 2 + 2, true);
+                }
+            }
+            out.write(row);
+        }
+    }
+}
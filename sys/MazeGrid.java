@@ -0,0 +1,278 @@
+package sys;
+
+/**
+ * <p>The MazeGrid class holds the topology of a maze as a packed bitset, one bit per cell, indexed by {@code y * width + x}.
+ * A set bit denotes a passage and a clear bit denotes a wall (cells outside of the grid are also treated as walls).
+ * </p>
+ * <p>
+ * Neighbours are not stored, they are computed from the N/E/S/W offsets of a cell index on demand.
+ * This keeps the memory footprint of a maze at roughly one bit per cell rather than an object (and a set of neighbours) per passage.
+ * </p>
+ * <p>
+ * The grid is read-only outside of this package. Cells are opened whilst a maze is being loaded, and only change afterwards when a GentrackMaze is edited (see GentrackMaze.setWall and setPassage).
+ * </p>
+ */
+public final class MazeGrid {
+    // Directions (valid moves are N, E, S, W, not diagonally).
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int SOUTH = 2;
+    public static final int WEST = 3;
+    // Returned by neighbor when there is no cell in the requested direction.
+    public static final int NONE = -1;
+    // The most cells a grid can hold, as cells are indexed by an int (larger mazes are opened with TiledMaze).
+    static final long MAX_CELLS = Integer.MAX_VALUE;
+    private final int width;
+    private final int height;
+    // Passage bits, one bit per cell.
+    private final long[] cells;
+
+    /**
+     * MazeGrid constructor. All cells start as walls.
+     *
+     * @param width  Width of the maze.
+     * @param height Height of the maze.
+     * @throws IllegalArgumentException Throws an illegal argument exception if the maze has more than MAX_CELLS cells.
+     */
+    MazeGrid(int width, int height) {
+        checkSize(width, height);
+        this.width = width;
+        this.height = height;
+        this.cells = new long[(int) (((long) width * height + 63) >>> 6)];
+    }
+
+    /**
+     * MazeGrid constructor adopting cells which have already been packed (see BinaryMazeFormat).
+     *
+     * @param width  Width of the maze.
+     * @param height Height of the maze.
+     * @param cells  Passage bits, one bit per cell indexed by y * width + x.
+     * @throws IllegalArgumentException Throws an illegal argument exception if the maze has more than MAX_CELLS cells.
+     */
+    MazeGrid(int width, int height, long[] cells) {
+        checkSize(width, height);
+        assert cells.length == (int) (((long) width * height + 63) >>> 6);
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    /**
+     * Checks the cells of a maze can be indexed by an int, which size() and every cell index rely on.
+     */
+    private static void checkSize(int width, int height) {
+        assert width > 0 && height > 0;
+        if ((long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " maze has " + (long) width * height + " cells, more than a MazeGrid can hold");
+        }
+    }
+
+    /**
+     * @return Returns the width of the maze.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return Returns the height of the maze.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return Returns the number of cells (walls and passages) on the grid.
+     */
+    public int size() {
+        return width * height;
+    }
+
+    /**
+     * Converts a coordinate to its cell index. The coordinate must lie on the grid.
+     *
+     * @param xCoord x coordinate of the cell.
+     * @param yCoord y coordinate of the cell.
+     * @return Returns the cell index.
+     */
+    public int index(int xCoord, int yCoord) {
+        assert contains(xCoord, yCoord);
+        return yCoord * width + xCoord;
+    }
+
+    /**
+     * @param index A cell index.
+     * @return Returns the x coordinate of the cell index.
+     */
+    public int xOf(int index) {
+        return index % width;
+    }
+
+    /**
+     * @param index A cell index.
+     * @return Returns the y coordinate of the cell index.
+     */
+    public int yOf(int index) {
+        return index / width;
+    }
+
+    /**
+     * Identifies whether a coordinate lies on the grid.
+     *
+     * @param xCoord x coordinate.
+     * @param yCoord y coordinate.
+     * @return Returns true if the coordinate lies on the grid.
+     */
+    public boolean contains(int xCoord, int yCoord) {
+        return xCoord >= 0 && yCoord >= 0 && xCoord < width && yCoord < height;
+    }
+
+    /**
+     * Identifies whether a passage exists at the coordinate. Coordinates outside of the grid are walls.
+     *
+     * @param xCoord x coordinate.
+     * @param yCoord y coordinate.
+     * @return Returns true if the coordinate is a passage.
+     */
+    public boolean isPassage(int xCoord, int yCoord) {
+        return contains(xCoord, yCoord) && isPassage(yCoord * width + xCoord);
+    }
+
+    /**
+     * Identifies whether the cell at the index is a passage.
+     *
+     * @param index A cell index on the grid.
+     * @return Returns true if the cell is a passage.
+     */
+    public boolean isPassage(int index) {
+        return (cells[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks the cell at the index as a passage. Used whilst loading the maze and by edits.
+     *
+     * @param index A cell index on the grid.
+     */
+    void open(int index) {
+        cells[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Marks the cell at the index as a wall. Only used by edits.
+     *
+     * @param index A cell index on the grid.
+     */
+    void close(int index) {
+        cells[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Marks a whole word of 64 cells as passages where bits are set. Only used whilst loading the maze.
+     *
+     * @param wordIndex The index of the word (cell index divided by 64).
+     * @param bits      Passage bits for the cells of the word.
+     */
+    void openWord(int wordIndex, long bits) {
+        cells[wordIndex] |= bits;
+    }
+
+    /**
+     * Returns a whole word of 64 cells, for packages which scan the grid a word at a time.
+     *
+     * @param wordIndex The index of the word (cell index divided by 64).
+     * @return Returns the passage bits of the cells of the word.
+     */
+    long word(int wordIndex) {
+        return cells[wordIndex];
+    }
+
+    /**
+     * @return Returns the number of words the cells are packed into.
+     */
+    int wordCount() {
+        return cells.length;
+    }
+
+    /**
+     * Hashes the size and cells of the grid a word at a time (see WordHash), so grids with the same cells have the same hash however they were loaded.
+     *
+     * @return Returns a 64 bit hash of the size and cells of the grid.
+     */
+    long contentHash() {
+        long hash = WordHash.mix(WordHash.SEED, (long) width << 32 | height);
+        for (long word : cells) {
+            hash = WordHash.mix(hash, word);
+        }
+        return WordHash.finish(hash);
+    }
+
+    /**
+     * Returns the index of the cell adjacent to the given index in the given direction.
+     * The adjacent cell may be a wall, callers should check isPassage where it matters.
+     *
+     * @param index     A cell index on the grid.
+     * @param direction One of NORTH, EAST, SOUTH or WEST.
+     * @return Returns the adjacent cell index or NONE if the step would leave the grid.
+     */
+    public int neighbor(int index, int direction) {
+        switch (direction) {
+            case NORTH:
+                return index >= width ? index - width : NONE;
+            case EAST:
+                return index % width != width - 1 ? index + 1 : NONE;
+            case SOUTH:
+                return index < size() - width ? index + width : NONE;
+            case WEST:
+                return index % width != 0 ? index - 1 : NONE;
+            default:
+                throw new IllegalArgumentException("Unknown direction " + direction);
+        }
+    }
+
+    /**
+     * Returns the index of an adjacent passage in the given direction.
+     *
+     * @param index     A cell index on the grid.
+     * @param direction One of NORTH, EAST, SOUTH or WEST.
+     * @return Returns the adjacent passage index or NONE if there is no passage in that direction.
+     */
+    public int passageNeighbor(int index, int direction) {
+        int neighbor = neighbor(index, direction);
+        return neighbor != NONE && isPassage(neighbor) ? neighbor : NONE;
+    }
+
+    /**
+     * @param direction One of NORTH, EAST, SOUTH or WEST.
+     * @return Returns the opposite direction.
+     */
+    public static int opposite(int direction) {
+        return (direction + 2) & 3;
+    }
+
+    /**
+     * Counts the passages on the grid.
+     *
+     * @return Returns the number of passages.
+     */
+    public int passageCount() {
+        int count = 0;
+        for (long word : cells) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * The string representation of the grid (does not include the cells themselves).
+     *
+     * @return Returns the string representation of the grid in the format MazeGrid{width=.., height=.., passages=..}.
+     */
+    @Override
+    public String toString() {
+        return "MazeGrid{" +
+                "width=" + width +
+                ", height=" + height +
+                ", passages=" + passageCount() +
+                '}';
+    }
+}
@@ -0,0 +1,199 @@
+package sys;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * <p>MazeMetrics is a SolveListener keeping cumulative counters and histograms of parse time, solve time, nodes expanded, frontier size, path length and render time.
+ * It is also a standard MBean, so once installed the metrics can be read from JMX (jconsole, or a JMX exporter feeding a dashboard) to spot slow mazes and regressions without attaching a profiler.
+ * </p>
+ * <pre>
+ * MazeMetrics metrics = MazeMetrics.install();
+ * ...
+ * metrics.uninstall();
+ * </pre>
+ */
+public final class MazeMetrics implements SolveListener, MazeMetricsMBean {
+    // The name the metrics are registered under by install.
+    public static final String OBJECT_NAME = "sys:type=MazeMetrics";
+    private final Histogram parseNanos = new Histogram();
+    private final Histogram solveNanos = new Histogram();
+    private final Histogram nodesExpanded = new Histogram();
+    private final Histogram peakFrontier = new Histogram();
+    private final Histogram pathLength = new Histogram();
+    private final Histogram renderNanos = new Histogram();
+    private ObjectName registeredName;
+
+    /**
+     * Creates metrics, listens to every GentrackMaze and registers the metrics with the platform MBean server under OBJECT_NAME.
+     *
+     * @return Returns the installed metrics.
+     * @throws JMException Throws a JMX exception if the metrics cannot be registered (for instance if metrics are already installed).
+     */
+    public static MazeMetrics install() throws JMException {
+        MazeMetrics metrics = new MazeMetrics();
+        metrics.registeredName = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metrics.registeredName);
+        GentrackMaze.addListener(metrics);
+        return metrics;
+    }
+
+    /**
+     * Stops listening and unregisters the metrics from the platform MBean server.
+     *
+     * @throws JMException Throws a JMX exception if the metrics cannot be unregistered.
+     */
+    public void uninstall() throws JMException {
+        GentrackMaze.removeListener(this);
+        if (registeredName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            registeredName = null;
+        }
+    }
+
+    @Override
+    public void onParse(long nanos) {
+        parseNanos.record(nanos);
+    }
+
+    @Override
+    public void onSolve(SolveStats stats) {
+        solveNanos.record(stats.getSolveNanos());
+        nodesExpanded.record(stats.getNodesExpanded());
+        peakFrontier.record(stats.getPeakFrontier());
+        if (stats.isFound()) {
+            pathLength.record(stats.getPathLength());
+        }
+    }
+
+    @Override
+    public void onRender(SolveStats stats) {
+        renderNanos.record(stats.getRenderNanos());
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseNanos.count();
+    }
+
+    @Override
+    public long getParseNanosP50() {
+        return parseNanos.percentile(50);
+    }
+
+    @Override
+    public long getParseNanosP99() {
+        return parseNanos.percentile(99);
+    }
+
+    @Override
+    public long getParseNanosMax() {
+        return parseNanos.max();
+    }
+
+    @Override
+    public long getSolveCount() {
+        return solveNanos.count();
+    }
+
+    @Override
+    public long getSolvedCount() {
+        return pathLength.count();
+    }
+
+    @Override
+    public long getUnsolvedCount() {
+        return solveNanos.count() - pathLength.count();
+    }
+
+    @Override
+    public long getSolveNanosP50() {
+        return solveNanos.percentile(50);
+    }
+
+    @Override
+    public long getSolveNanosP99() {
+        return solveNanos.percentile(99);
+    }
+
+    @Override
+    public long getSolveNanosMax() {
+        return solveNanos.max();
+    }
+
+    @Override
+    public double getSolveNanosMean() {
+        return solveNanos.mean();
+    }
+
+    @Override
+    public long[] getSolveNanosHistogram() {
+        return solveNanos.buckets();
+    }
+
+    @Override
+    public long getNodesExpandedTotal() {
+        return nodesExpanded.sum();
+    }
+
+    @Override
+    public long getNodesExpandedP50() {
+        return nodesExpanded.percentile(50);
+    }
+
+    @Override
+    public long getNodesExpandedP99() {
+        return nodesExpanded.percentile(99);
+    }
+
+    @Override
+    public long getNodesExpandedMax() {
+        return nodesExpanded.max();
+    }
+
+    @Override
+    public long[] getNodesExpandedHistogram() {
+        return nodesExpanded.buckets();
+    }
+
+    @Override
+    public long getPeakFrontierMax() {
+        return peakFrontier.max();
+    }
+
+    @Override
+    public long getPathLengthMax() {
+        return pathLength.max();
+    }
+
+    @Override
+    public long getRenderCount() {
+        return renderNanos.count();
+    }
+
+    @Override
+    public long getRenderNanosP50() {
+        return renderNanos.percentile(50);
+    }
+
+    @Override
+    public long getRenderNanosP99() {
+        return renderNanos.percentile(99);
+    }
+
+    @Override
+    public long getRenderNanosMax() {
+        return renderNanos.max();
+    }
+
+    @Override
+    public void reset() {
+        parseNanos.reset();
+        solveNanos.reset();
+        nodesExpanded.reset();
+        peakFrontier.reset();
+        pathLength.reset();
+        renderNanos.reset();
+    }
+}
@@ -0,0 +1,58 @@
+package sys;
+
+/**
+ * The JMX management interface of MazeMetrics. Times are in nanoseconds and histograms are power of two buckets (bucket b counts values below 2^b).
+ */
+public interface MazeMetricsMBean {
+
+    long getParseCount();
+
+    long getParseNanosP50();
+
+    long getParseNanosP99();
+
+    long getParseNanosMax();
+
+    long getSolveCount();
+
+    long getSolvedCount();
+
+    long getUnsolvedCount();
+
+    long getSolveNanosP50();
+
+    long getSolveNanosP99();
+
+    long getSolveNanosMax();
+
+    double getSolveNanosMean();
+
+    long[] getSolveNanosHistogram();
+
+    long getNodesExpandedTotal();
+
+    long getNodesExpandedP50();
+
+    long getNodesExpandedP99();
+
+    long getNodesExpandedMax();
+
+    long[] getNodesExpandedHistogram();
+
+    long getPeakFrontierMax();
+
+    long getPathLengthMax();
+
+    long getRenderCount();
+
+    long getRenderNanosP50();
+
+    long getRenderNanosP99();
+
+    long getRenderNanosMax();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,238 @@
+package sys;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * <p>The MazeReader class scans the bytes of a GentrackMaze file directly, without splitting lines or allocating a String per token.
+ * Header values are parsed digit by digit and the {@code 0}/{@code 1} cells are packed straight into the words of a MazeGrid.
+ * </p>
+ * <p>
+ * Files are read through memory-mapped windows of a FileChannel, or through windows which have already been mapped (see SolutionCache). Any other ReadableByteChannel (a socket or a pipe for instance) is read through a single reused buffer.
+ * Channels must be in blocking mode, a non-blocking channel is rejected rather than polled. The reader does not close the channel it is given.
+ * </p>
+ */
+final class MazeReader {
+    // Size of the reused buffer for plain channels.
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Size of each memory-mapped window of a file.
+    private static final long MAP_WINDOW = 1L << 26;
+    private final ReadableByteChannel channel;
+    // Set when reading a file, in which case the buffer is a mapped window rather than a reused buffer.
+    private final FileChannel file;
+    // Offset of the next window to map.
+    private long filePosition;
+    // Windows mapped by the caller, read in order (null unless the reader was given windows).
+    private final ByteBuffer[] windows;
+    private int nextWindow;
+    private ByteBuffer buffer;
+    private boolean endOfInput;
+
+    /**
+     * MazeReader constructor for any channel.
+     *
+     * @param channel The channel to read, in blocking mode.
+     * @throws IOException                  Throws an IO exception if the position of a file channel cannot be read.
+     * @throws IllegalBlockingModeException Throws an illegal blocking mode exception if the channel is in non-blocking mode.
+     */
+    MazeReader(ReadableByteChannel channel) throws IOException {
+        requireBlocking(channel);
+        this.channel = channel;
+        this.windows = null;
+        this.file = channel instanceof FileChannel ? (FileChannel) channel : null;
+        if (file == null) {
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            // Start empty so the first read fills the buffer.
+            buffer.flip();
+        } else {
+            this.buffer = ByteBuffer.allocate(0);
+            // Reading begins from the current position of the file.
+            this.filePosition = file.position();
+        }
+    }
+
+    /**
+     * MazeReader constructor for windows of a file which have already been mapped. The windows themselves are not moved on.
+     *
+     * @param windows The windows, in file order.
+     */
+    MazeReader(ByteBuffer[] windows) {
+        this.channel = null;
+        this.file = null;
+        this.windows = windows;
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Maps the whole of a file as a run of read-only windows, to be hashed and then parsed with MazeReader(ByteBuffer[]).
+     *
+     * @param file The file.
+     * @return Returns the windows in file order (none for an empty file).
+     * @throws IOException Throws an IO exception if the file cannot be mapped.
+     */
+    static ByteBuffer[] map(FileChannel file) throws IOException {
+        long size = file.size();
+        ByteBuffer[] windows = new ByteBuffer[(int) ((size + MAP_WINDOW - 1) / MAP_WINDOW)];
+        for (int window = 0; window < windows.length; window++) {
+            long position = window * MAP_WINDOW;
+            windows[window] = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAP_WINDOW));
+        }
+        return windows;
+    }
+
+    /**
+     * Reads the next non-negative integer, skipping any leading separators.
+     *
+     * @return Returns the integer read.
+     * @throws IOException Throws an IO exception if the channel cannot be read or ends before an integer is found.
+     */
+    int nextInt() throws IOException {
+        int next = nextByte();
+        while (next != -1 && (next < '0' || next > '9')) {
+            next = nextByte();
+        }
+        if (next == -1) {
+            throw new EOFException("Expected an integer before the end of the maze file");
+        }
+        int value = 0;
+        while (next >= '0' && next <= '9') {
+            value = value * 10 + (next - '0');
+            next = nextByte();
+        }
+        return value;
+    }
+
+    /**
+     * @return Returns the position in the file of the next byte to be read. Only valid when reading a file.
+     */
+    long position() {
+        assert file != null;
+        return filePosition - buffer.remaining();
+    }
+
+    /**
+     * Reads the cells of the maze into the grid in row order. {@code 0} denotes a passage and {@code 1} denotes a wall, every other byte is a separator.
+     * If the input ends early the remaining cells are left as walls.
+     *
+     * @param grid An empty grid sized to the header of the file.
+     * @throws IOException Throws an IO exception if the channel cannot be read.
+     */
+    void readCells(MazeGrid grid) throws IOException {
+        final int[] word = {0};
+        readCells(grid.size(), bits -> grid.openWord(word[0]++, bits));
+    }
+
+    /**
+     * Reads cells in row order, handing them on packed 64 to a word as MazeGrid holds them (bit (index % 64) of word (index / 64) set for a passage).
+     * Cells are never held beyond the current word, so a maze of any size can be streamed through (see BinaryMazeFormat.convert).
+     * If the input ends early the words after the last cell read are not handed on.
+     *
+     * @param size  The number of cells to read.
+     * @param words Receives each word of cells in order.
+     * @throws IOException Throws an IO exception if the channel cannot be read or the words cannot be handed on.
+     */
+    void readCells(long size, WordSink words) throws IOException {
+        long index = 0;
+        long word = 0;
+        // Cells are accumulated into a 64 bit word and handed on once the word is full.
+        while (index < size) {
+            if (!buffer.hasRemaining() && !fill()) {
+                break;
+            }
+            ByteBuffer bytes = buffer;
+            while (index < size && bytes.hasRemaining()) {
+                byte next = bytes.get();
+                if (next == '0') {
+                    word |= 1L << index;
+                } else if (next != '1') {
+                    continue;
+                }
+                if ((++index & 63) == 0) {
+                    words.accept(word);
+                    word = 0;
+                }
+            }
+        }
+        if ((index & 63) != 0) {
+            words.accept(word);
+        }
+    }
+
+    /**
+     * Receives the words of cells read by readCells.
+     */
+    interface WordSink {
+        void accept(long word) throws IOException;
+    }
+
+    /**
+     * @return Returns the next byte of input or -1 at the end of input.
+     * @throws IOException Throws an IO exception if the channel cannot be read.
+     */
+    private int nextByte() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Refills the buffer, mapping the next window of a file or reading the next block of a channel.
+     *
+     * @return Returns false if the input has ended.
+     * @throws IOException Throws an IO exception if the channel cannot be read.
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        if (windows != null) {
+            if (nextWindow == windows.length) {
+                endOfInput = true;
+                return false;
+            }
+            buffer = windows[nextWindow++].duplicate();
+            return true;
+        }
+        if (file != null) {
+            long remaining = file.size() - filePosition;
+            if (remaining <= 0) {
+                endOfInput = true;
+                return false;
+            }
+            long length = Math.min(remaining, MAP_WINDOW);
+            MappedByteBuffer window = file.map(FileChannel.MapMode.READ_ONLY, filePosition, length);
+            filePosition += length;
+            buffer = window;
+            return true;
+        }
+        buffer.clear();
+        int read = channel.read(buffer);
+        while (read == 0) {
+            // A blocking read only returns nothing in rare cases, a channel switched to non-blocking mode would spin here forever.
+            requireBlocking(channel);
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rejects a selectable channel (a socket or a pipe for instance) which is in non-blocking mode, as reads of it return nothing until data arrives.
+     */
+    private static void requireBlocking(ReadableByteChannel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
+        }
+    }
+}
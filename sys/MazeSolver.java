@@ -0,0 +1,30 @@
+package sys;
+
+/**
+ * <p>A MazeSolver is a search strategy which finds a route between two passages of a MazeGrid.
+ * Engines are picked per call (see GentrackMaze.solve(MazeSolver)), so the cheapest engine can be chosen for each shape of maze.
+ * </p>
+ * <ul>
+ * <li>DepthFirstSolver - the original signposting depth first search. Cheap on narrow mazes but routes are not shortest.</li>
+ * <li>BreadthFirstSolver - guarantees a shortest route.</li>
+ * <li>AStarSolver - shortest route guided by a Manhattan distance heuristic, expanding fewer passages on open mazes.</li>
+ * <li>BidirectionalSolver - shortest route grown from both ends at once, expanding fewer passages on long mazes.</li>
+ * <li>CorridorSolver - shortest route over the corridor-compressed graph of the maze, expanding junctions and dead-ends only.</li>
+ * <li>WorkspaceSolver - shortest route from a breadth first search which reuses its arrays per thread, allocating nothing once warmed up.</li>
+ * </ul>
+ * <p>
+ * Implementations hold no search state between calls and may be shared.
+ * </p>
+ */
+public interface MazeSolver {
+
+    /**
+     * Searches the grid for a route between two passages.
+     *
+     * @param grid  The grid to search.
+     * @param start Cell index of the start passage.
+     * @param end   Cell index of the end passage.
+     * @return Returns the route found (or a route which is not found) along with the number of passages expanded.
+     */
+    Route solve(MazeGrid grid, int start, int end);
+}
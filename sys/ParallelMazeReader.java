@@ -0,0 +1,142 @@
+package sys;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>The ParallelMazeReader reads the cells of a GentrackMaze file on many threads at once. The cells after the header are split into chunks of bytes
+ * which are memory-mapped and read independently, each into its own range of words of one shared grid.
+ * </p>
+ * <p>
+ * Every cell is a single {@code 0} or {@code 1} byte, so a chunk may start at any byte, but the index of its first cell depends on how many cells come before it
+ * (separators are not always one byte per cell). Chunks are therefore read twice: first every chunk counts its cells, and once the counts are added up
+ * every chunk packs its cells into the grid from its own first index. Neighbouring chunks share at most the word either side of their seam, and only those words
+ * are written atomically. Vertical connections need no stitching across seams as neighbours are worked out from the offsets of a cell once the grid is built.
+ * </p>
+ */
+final class ParallelMazeReader {
+    // Chunks are at least this many bytes, smaller files are read on fewer threads.
+    private static final long MIN_CHUNK = 1 << 12;
+    // Chunks are at most this many bytes, so that each can be mapped in one window.
+    private static final long MAX_CHUNK = 1L << 26;
+    // Chunks per thread of the pool, so threads which finish early can take on more.
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private ParallelMazeReader() {
+    }
+
+    /**
+     * Reads the cells of a maze file into a new grid. If the file ends early the remaining cells are left as walls.
+     *
+     * @param file   The maze file.
+     * @param from   Position in the file of the first byte after the header.
+     * @param width  Width of the maze.
+     * @param height Height of the maze.
+     * @param pool   The pool to read the chunks on.
+     * @return Returns the grid.
+     * @throws IOException Throws an IO exception if the file cannot be read.
+     */
+    static MazeGrid read(FileChannel file, long from, int width, int height, ForkJoinPool pool) throws IOException {
+        final long bytes = Math.max(file.size() - from, 0);
+        long chunkBytes = bytes / ((long) pool.getParallelism() * CHUNKS_PER_THREAD);
+        chunkBytes = Math.min(Math.max(chunkBytes, MIN_CHUNK), MAX_CHUNK);
+        final int chunks = (int) Math.max((bytes + chunkBytes - 1) / chunkBytes, 1);
+        final MappedByteBuffer[] mapped = new MappedByteBuffer[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            long start = from + chunk * chunkBytes;
+            mapped[chunk] = file.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkBytes, bytes - chunk * chunkBytes));
+        }
+        // First pass, count the cells of every chunk.
+        List<ForkJoinTask<Long>> counts = new ArrayList<>(chunks);
+        for (MappedByteBuffer chunk : mapped) {
+            counts.add(pool.submit(() -> countCells(chunk)));
+        }
+        final long size = (long) width * height;
+        final long[] cells = new long[(int) ((size + 63) >>> 6)];
+        // Second pass, pack the cells of every chunk from the index of its first cell.
+        List<ForkJoinTask<?>> packs = new ArrayList<>(chunks);
+        long firstCell = 0;
+        for (int chunk = 0; chunk < chunks && firstCell < size; chunk++) {
+            final MappedByteBuffer bytesOfChunk = mapped[chunk];
+            final long first = firstCell;
+            packs.add(pool.submit(() -> packCells(bytesOfChunk, first, size, cells)));
+            firstCell += counts.get(chunk).join();
+        }
+        for (ForkJoinTask<?> pack : packs) {
+            pack.join();
+        }
+        return new MazeGrid(width, height, cells);
+    }
+
+    /**
+     * Counts the cells of a chunk eight bytes at a time. A byte is a cell if it is {@code 0} or {@code 1}, that is if it equals {@code 0} once its lowest bit is cleared,
+     * and the bytes which are zero in a long are counted without branching by setting the top bit of every byte which is not.
+     *
+     * @param chunk The bytes of a chunk.
+     * @return Returns the number of cells in the chunk.
+     */
+    private static long countCells(MappedByteBuffer chunk) {
+        final long lowBitsCleared = 0xFEFEFEFEFEFEFEFEL;
+        final long zeros = 0x3030303030303030L;
+        final long lowSeven = 0x7F7F7F7F7F7F7F7FL;
+        final long topBits = 0x8080808080808080L;
+        final int limit = chunk.limit();
+        long count = 0;
+        int position = 0;
+        for (; position + Long.BYTES <= limit; position += Long.BYTES) {
+            long differences = (chunk.getLong(position) & lowBitsCleared) ^ zeros;
+            long notCells = (((differences & lowSeven) + lowSeven) | differences) & topBits;
+            count += Long.BYTES - Long.bitCount(notCells);
+        }
+        for (; position < limit; position++) {
+            byte next = chunk.get(position);
+            if (next == '0' || next == '1') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Packs the cells of a chunk into the words of the grid. The first and last words of the chunk may be shared with the neighbouring chunks, so they are merged atomically.
+     *
+     * @param chunk     The bytes of a chunk.
+     * @param firstCell The index of the first cell of the chunk.
+     * @param size      The number of cells of the maze, cells after which are ignored.
+     * @param cells     The words of the grid.
+     */
+    private static void packCells(MappedByteBuffer chunk, long firstCell, long size, long[] cells) {
+        final int firstWord = (int) (firstCell >>> 6);
+        long index = firstCell;
+        long word = 0;
+        for (int position = 0, limit = chunk.limit(); position < limit && index < size; position++) {
+            byte next = chunk.get(position);
+            if (next == '0') {
+                word |= 1L << index;
+            } else if (next != '1') {
+                continue;
+            }
+            if ((++index & 63) == 0) {
+                int wordIndex = (int) ((index - 1) >>> 6);
+                if (wordIndex == firstWord) {
+                    WORDS.getAndBitwiseOr(cells, wordIndex, word);
+                } else {
+                    cells[wordIndex] = word;
+                }
+                word = 0;
+            }
+        }
+        if ((index & 63) != 0) {
+            // The last word is unfinished and is shared with the next chunk.
+            WORDS.getAndBitwiseOr(cells, (int) (index >>> 6), word);
+        }
+    }
+}
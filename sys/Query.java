@@ -0,0 +1,70 @@
+package sys;
+
+/**
+ * A Query asks for a route between a start and an end coordinate of a maze.
+ * Queries carry no search state, so any number of them can be solved against the same GentrackMaze at once.
+ */
+public final class Query {
+    private final int startX;
+    private final int startY;
+    private final int endX;
+    private final int endY;
+
+    /**
+     * Query constructor.
+     *
+     * @param startX x coordinate of the start.
+     * @param startY y coordinate of the start.
+     * @param endX   x coordinate of the end.
+     * @param endY   y coordinate of the end.
+     */
+    public Query(int startX, int startY, int endX, int endY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
+
+    /**
+     * @return Returns the x coordinate of the start.
+     */
+    public int getStartX() {
+        return startX;
+    }
+
+    /**
+     * @return Returns the y coordinate of the start.
+     */
+    public int getStartY() {
+        return startY;
+    }
+
+    /**
+     * @return Returns the x coordinate of the end.
+     */
+    public int getEndX() {
+        return endX;
+    }
+
+    /**
+     * @return Returns the y coordinate of the end.
+     */
+    public int getEndY() {
+        return endY;
+    }
+
+    /**
+     * The string representation of the query.
+     *
+     * @return Returns the string representation of the query in the format Query{startX=.., startY=.., endX=.., endY=..}.
+     */
+    @Override
+    public String toString() {
+        return "Query{" +
+                "startX=" + startX +
+                ", startY=" + startY +
+                ", endX=" + endX +
+                ", endY=" + endY +
+                '}';
+    }
+}
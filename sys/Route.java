@@ -0,0 +1,126 @@
+package sys;
+
+import java.util.function.Supplier;
+
+/**
+ * A Route is the result of a MazeSolver search. It holds the cell indices of the route from start to finish (inclusive) if one was found,
+ * and the number of passages the search expanded to get there (whether or not a route was found).
+ * Searches which do not visit every cell on the route (see CorridorSolver) provide an expansion instead, which is only run the first time the cells are needed.
+ */
+public final class Route {
+    private static final int[] NO_CELLS = new int[0];
+    private final boolean found;
+    private final int length;
+    private final long nodesExpanded;
+    private final int peakFrontier;
+    // Cells of the route, or null until the expansion has been run.
+    private int[] cells;
+    private Supplier<int[]> expansion;
+
+    /**
+     * Route constructor.
+     *
+     * @param cells         Cell indices from start to finish, or null if no route was found.
+     * @param nodesExpanded The number of passages expanded by the search.
+     * @param peakFrontier  The largest number of entries the frontier of the search held at once.
+     */
+    Route(int[] cells, long nodesExpanded, int peakFrontier) {
+        this.found = cells != null;
+        this.length = cells == null ? -1 : cells.length - 1;
+        this.cells = cells;
+        this.nodesExpanded = nodesExpanded;
+        this.peakFrontier = peakFrontier;
+    }
+
+    /**
+     * Route constructor for a route whose cells are expanded on demand.
+     *
+     * @param length        The number of steps taken by the route.
+     * @param expansion     Produces the cell indices from start to finish (length + 1 cells).
+     * @param nodesExpanded The number of nodes expanded by the search.
+     * @param peakFrontier  The largest number of entries the frontier of the search held at once.
+     */
+    Route(int length, Supplier<int[]> expansion, long nodesExpanded, int peakFrontier) {
+        this.found = true;
+        this.length = length;
+        this.expansion = expansion;
+        this.nodesExpanded = nodesExpanded;
+        this.peakFrontier = peakFrontier;
+    }
+
+    /**
+     * @param nodesExpanded The number of passages expanded by the search.
+     * @param peakFrontier  The largest number of entries the frontier of the search held at once.
+     * @return Returns a route which was not found.
+     */
+    static Route notFound(long nodesExpanded, int peakFrontier) {
+        return new Route(null, nodesExpanded, peakFrontier);
+    }
+
+    /**
+     * @return Returns true if a route was found.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * @return Returns the cell indices of the route from start to finish (inclusive), or an empty array if no route was found.
+     */
+    public int[] cells() {
+        return found ? cellArray().clone() : NO_CELLS;
+    }
+
+    /**
+     * @return Returns the number of steps taken by the route (one less than the passages on it), or -1 if no route was found.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return Returns the number of passages expanded by the search.
+     */
+    public long nodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return Returns the largest number of entries the frontier (stack, queue or open set) of the search held at once.
+     */
+    public int peakFrontier() {
+        return peakFrontier;
+    }
+
+    /**
+     * Returns the cells without copying them, for use within the package. Runs the expansion of the route if it has not been run yet.
+     *
+     * @return Returns the cell indices of the route (or an empty array).
+     */
+    synchronized int[] cellArray() {
+        if (!found) {
+            return NO_CELLS;
+        }
+        if (cells == null) {
+            cells = expansion.get();
+            expansion = null;
+            assert cells.length == length + 1;
+        }
+        return cells;
+    }
+
+    /**
+     * The string representation of the route (does not include the cells themselves).
+     *
+     * @return Returns the string representation of the route in the format Route{found=.., length=.., nodesExpanded=.., peakFrontier=..}.
+     */
+    @Override
+    public String toString() {
+        return "Route{" +
+                "found=" + found +
+                ", length=" + length +
+                ", nodesExpanded=" + nodesExpanded +
+                ", peakFrontier=" + peakFrontier +
+                '}';
+    }
+}
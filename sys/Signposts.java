@@ -0,0 +1,92 @@
+package sys;
+
+/**
+ * <p>Signposts hold the search state of a single solve over a MazeGrid.
+ * Every cell reached by the search is flagged as seen and given a sign (think a sign post leading back to the passage it was reached from).
+ * </p>
+ * <p>
+ * Signs only ever point to an adjacent cell, so rather than storing a reference (or an index) per cell the sign is stored as one of the four directions in two bits.
+ * Together with the seen flag a search costs three bits per cell on top of the grid.
+ * </p>
+ */
+final class Signposts {
+    private final MazeGrid grid;
+    // One bit per cell, set once the cell has been reached.
+    private final long[] seen;
+    // Two bits per cell holding the direction back towards the start.
+    private final long[] signs;
+
+    /**
+     * Signposts constructor.
+     *
+     * @param grid The grid being searched.
+     */
+    Signposts(MazeGrid grid) {
+        this.grid = grid;
+        this.seen = new long[(grid.size() + 63) >>> 6];
+        this.signs = new long[(grid.size() + 31) >>> 5];
+    }
+
+    /**
+     * @param index A cell index on the grid.
+     * @return Returns true if the cell has been reached by the search.
+     */
+    boolean isSeen(int index) {
+        return (seen[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Flags a cell as reached without a sign (used for the start of a search).
+     *
+     * @param index A cell index on the grid.
+     */
+    void markSeen(int index) {
+        seen[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Flags a cell as reached and points its sign back in the given direction.
+     *
+     * @param index     A cell index on the grid.
+     * @param direction The direction from the cell towards the passage it was reached from.
+     */
+    void setSign(int index, int direction) {
+        markSeen(index);
+        int shift = (index & 31) << 1;
+        signs[index >>> 5] = (signs[index >>> 5] & ~(3L << shift)) | ((long) direction << shift);
+    }
+
+    /**
+     * @param index A cell index on the grid which has been given a sign.
+     * @return Returns the direction the sign of the cell points in.
+     */
+    int getSign(int index) {
+        return (int) (signs[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * Follows signs from a cell back to the start of the search.
+     *
+     * @param from The start of the search.
+     * @param to   A cell which has been reached by the search.
+     * @return Returns the cell indices from start to finish (inclusive).
+     */
+    int[] trace(int from, int to) {
+        assert isSeen(to);
+        // Count the steps first so the route can be filled front to back without a resizable list.
+        int length = 1;
+        for (int current = to; current != from; current = grid.neighbor(current, getSign(current))) {
+            length++;
+        }
+        int[] route = new int[length];
+        int current = to;
+        for (int step = length - 1; step >= 0; step--) {
+            route[step] = current;
+            if (step > 0) {
+                current = grid.neighbor(current, getSign(current));
+            }
+        }
+        assert current == from;
+        return route;
+    }
+}
@@ -0,0 +1,384 @@
+package sys;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The SolutionCache is an opt-in layer in front of GentrackMaze for workloads which ask for the same maze and endpoints over and over.
+ * Routes are keyed by a 64 bit hash of the parsed maze (its size and cells, see MazeGrid.contentHash) plus the start and end. A file is mapped once and its
+ * bytes are hashed straight from the mapping, so a repeated query of the same file skips both parsing and searching. Only on a miss is the maze parsed, from
+ * that same mapping, so the bytes hashed and the cells searched cannot differ even if the file is replaced mid query. Files which differ only in their
+ * whitespace or line endings hold the same maze and share routes once each has been parsed. The first query of a maze and endpoints solves the maze as usual.
+ * Mazes which are already loaded can be looked up without reading anything (see solve(GentrackMaze, Query)).
+ * </p>
+ * <p>
+ * Routes are held compactly (two bits per step, see CompactRoute) and are expanded into cell indices only when asked for. Routes which were not found are cached too.
+ * The cache is bounded by the bytes its routes hold, evicting the least recently used routes first, and counts its hits, misses and evictions.
+ * </p>
+ * <p>
+ * The hash is not cryptographic, two different mazes of the same size with the same hash would share routes. That is vanishingly unlikely by chance, but the cache
+ * should not be used where the maze files are chosen by an adversary. The cache may be used from any thread.
+ * </p>
+ */
+public final class SolutionCache {
+    private final long maxBytes;
+    private final MazeSolver solver;
+    // Routes by key, least recently used first, guarded by the map.
+    private final LinkedHashMap<Key, Entry> routes = new LinkedHashMap<>(16, 0.75f, true);
+    // The key of the route of each file and query seen, by the hash of the file's bytes (guarded by routes, and dropped along with the route).
+    private final Map<FileKey, Key> files = new HashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * SolutionCache constructor. Mazes are solved with the same engine as GentrackMaze.solve().
+     *
+     * @param maxBytes The most bytes the cached routes may hold.
+     */
+    public SolutionCache(long maxBytes) {
+        this(maxBytes, new DepthFirstSolver());
+    }
+
+    /**
+     * SolutionCache constructor.
+     *
+     * @param maxBytes The most bytes the cached routes may hold.
+     * @param solver   The search engine to solve mazes with on a miss.
+     */
+    public SolutionCache(long maxBytes, MazeSolver solver) {
+        this.maxBytes = maxBytes;
+        this.solver = solver;
+    }
+
+    /**
+     * Solves a maze file between the start and end given in the file.
+     *
+     * @param file A GentrackMaze file.
+     * @return Returns the route found (the number of passages expanded is 0 when the route came from the cache).
+     * @throws IOException Throws an IO exception if the file cannot be read.
+     */
+    public Route solve(File file) throws IOException {
+        return solve(file, null);
+    }
+
+    /**
+     * Solves a maze file between the given start and end.
+     *
+     * @param file  A GentrackMaze file.
+     * @param query The start and end coordinates, or null for the start and end given in the file.
+     * @return Returns the route found (the number of passages expanded is 0 when the route came from the cache).
+     * @throws IOException Throws an IO exception if the file cannot be read.
+     */
+    public Route solve(File file, Query query) throws IOException {
+        ByteBuffer[] windows;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            windows = MazeReader.map(channel);
+        }
+        FileKey fileKey = new FileKey(hash(windows), query);
+        CompactRoute cached = null;
+        synchronized (routes) {
+            Key key = files.get(fileKey);
+            Entry entry = key == null ? null : routes.get(key);
+            if (entry != null) {
+                hits++;
+                cached = entry.route;
+            }
+        }
+        if (cached != null) {
+            return expand(cached);
+        }
+        // Parsed from the very bytes which were hashed.
+        return solve(new GentrackMaze(new MazeReader(windows)), query, fileKey);
+    }
+
+    /**
+     * Solves a loaded maze between the given start and end. The solved state of the maze is not touched.
+     *
+     * @param maze  The maze.
+     * @param query The start and end coordinates, or null for the maze's own start and end.
+     * @return Returns the route found (the number of passages expanded is 0 when the route came from the cache).
+     */
+    public Route solve(GentrackMaze maze, Query query) {
+        return solve(maze, query, null);
+    }
+
+    /**
+     * Solves a loaded maze, remembering the route under the file it was parsed from as well.
+     *
+     * @param fileKey The hash of the file and the query, or null if the maze did not come from a file.
+     */
+    private Route solve(GentrackMaze maze, Query query, FileKey fileKey) {
+        Query solved = query != null ? query : new Query(maze.getStartX(), maze.getStartY(), maze.getEndX(), maze.getEndY());
+        Key key = new Key(maze.getGrid().contentHash(), maze.getWidth(), maze.getHeight(), solved);
+        CompactRoute cached = null;
+        synchronized (routes) {
+            Entry entry = routes.get(key);
+            if (entry != null) {
+                hits++;
+                cached = entry.route;
+                // The same maze in a different file (other whitespace for instance), later queries of that file need not parse it.
+                alias(entry, key, fileKey);
+            } else {
+                misses++;
+            }
+        }
+        if (cached == null) {
+            // Solved outside of the lock, so a slow miss does not hold up hits on other threads.
+            Route route = maze.solve(solved, solver);
+            put(key, fileKey, new CompactRoute(maze.getGrid(), route));
+            return route;
+        }
+        return expand(cached);
+    }
+
+    /**
+     * @return Returns the cached route expanded lazily into a route (the number of passages expanded is 0).
+     */
+    private static Route expand(CompactRoute cached) {
+        if (!cached.isFound()) {
+            return Route.notFound(0, 0);
+        }
+        return new Route(cached.length(), cached::expand, 0, 0);
+    }
+
+    /**
+     * Adds a route, evicting the least recently used routes until the cache is back within its bound.
+     */
+    private void put(Key key, FileKey fileKey, CompactRoute route) {
+        synchronized (routes) {
+            Entry entry = new Entry(route);
+            Entry replaced = routes.put(key, entry);
+            bytes += route.byteSize();
+            if (replaced != null) {
+                // Solved by two threads at once, the files of the first route now lead to this one.
+                bytes -= replaced.route.byteSize();
+                entry.files.addAll(replaced.files);
+            }
+            alias(entry, key, fileKey);
+            Iterator<Entry> eldest = routes.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                bytes -= evicted.route.byteSize();
+                for (FileKey file : evicted.files) {
+                    files.remove(file);
+                }
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Remembers the route's key under the file, if there is one and it is not already known. Called holding the lock.
+     */
+    private void alias(Entry entry, Key key, FileKey fileKey) {
+        if (fileKey != null && files.putIfAbsent(fileKey, key) == null) {
+            entry.files.add(fileKey);
+        }
+    }
+
+    /**
+     * Hashes the bytes of a mapped file a word at a time, along with its length.
+     *
+     * @param windows The windows of the file (see MazeReader.map).
+     * @return Returns the hash.
+     */
+    private static long hash(ByteBuffer[] windows) {
+        long hash = WordHash.SEED;
+        long length = 0;
+        for (ByteBuffer window : windows) {
+            ByteBuffer bytes = window.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            length += bytes.remaining();
+            while (bytes.remaining() >= Long.BYTES) {
+                hash = WordHash.mix(hash, bytes.getLong());
+            }
+            // Windows are a whole number of words long, so only the last ends part way through a word.
+            if (bytes.hasRemaining()) {
+                long tail = 0;
+                for (int shift = 0; bytes.hasRemaining(); shift += Byte.SIZE) {
+                    tail |= (bytes.get() & 0xFFL) << shift;
+                }
+                hash = WordHash.mix(hash, tail);
+            }
+        }
+        return WordHash.finish(WordHash.mix(hash, length));
+    }
+
+    /**
+     * @return Returns the number of routes held.
+     */
+    public int size() {
+        synchronized (routes) {
+            return routes.size();
+        }
+    }
+
+    /**
+     * @return Returns roughly the number of bytes held by the cached routes.
+     */
+    public long byteSize() {
+        synchronized (routes) {
+            return bytes;
+        }
+    }
+
+    /**
+     * @return Returns the number of queries answered from the cache.
+     */
+    public long getHitCount() {
+        synchronized (routes) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return Returns the number of queries which had to be solved.
+     */
+    public long getMissCount() {
+        synchronized (routes) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return Returns the number of routes evicted to keep the cache within its bound.
+     */
+    public long getEvictionCount() {
+        synchronized (routes) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Removes every route (the counts are kept).
+     */
+    public void clear() {
+        synchronized (routes) {
+            routes.clear();
+            files.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * The string representation of the cache.
+     *
+     * @return Returns the string representation of the cache in the format SolutionCache{routes=.., bytes=.., hits=.., misses=.., evictions=..}.
+     */
+    @Override
+    public String toString() {
+        synchronized (routes) {
+            return "SolutionCache{" +
+                    "routes=" + routes.size() +
+                    ", bytes=" + bytes +
+                    ", hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    '}';
+        }
+    }
+
+    /**
+     * A cached route and the files known to lead to it.
+     */
+    private static final class Entry {
+        private final CompactRoute route;
+        private final List<FileKey> files = new ArrayList<>(1);
+
+        Entry(CompactRoute route) {
+            this.route = route;
+        }
+    }
+
+    /**
+     * The key of a file's route: the hash of the file's bytes and the endpoints asked for (or none, for the start and end given in the file).
+     */
+    private static final class FileKey {
+        private final long hash;
+        private final Query query;
+
+        FileKey(long hash, Query query) {
+            this.hash = hash;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof FileKey)) {
+                return false;
+            }
+            FileKey key = (FileKey) other;
+            if (hash != key.hash || (query == null) != (key.query == null)) {
+                return false;
+            }
+            return query == null || (query.getStartX() == key.query.getStartX() && query.getStartY() == key.query.getStartY()
+                    && query.getEndX() == key.query.getEndX() && query.getEndY() == key.query.getEndY());
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(hash);
+            if (query != null) {
+                result = 31 * result + query.getStartX();
+                result = 31 * result + query.getStartY();
+                result = 31 * result + query.getEndX();
+                result = 31 * result + query.getEndY();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The key of a cached route: the hash and size of the maze and the endpoints asked for.
+     */
+    private static final class Key {
+        private final long hash;
+        private final int width;
+        private final int height;
+        private final int startX;
+        private final int startY;
+        private final int endX;
+        private final int endY;
+
+        Key(long hash, int width, int height, Query query) {
+            this.hash = hash;
+            this.width = width;
+            this.height = height;
+            this.startX = query.getStartX();
+            this.startY = query.getStartY();
+            this.endX = query.getEndX();
+            this.endY = query.getEndY();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && width == key.width && height == key.height
+                    && startX == key.startX && startY == key.startY && endX == key.endX && endY == key.endY;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(hash);
+            result = 31 * result + startX;
+            result = 31 * result + startY;
+            result = 31 * result + endX;
+            return 31 * result + endY;
+        }
+    }
+}
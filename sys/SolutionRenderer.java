@@ -0,0 +1,86 @@
+package sys;
+
+/**
+ * <p>The SolutionRenderer draws a solved maze one row at a time into a reused row buffer, so a solution can be streamed out without holding a second copy of the whole maze.
+ * The route is flagged on a bitset up front so whether a passage lies on the route is answered in constant time, rather than by searching the route for every cell.
+ * </p>
+ * <p>
+ * Rows are drawn with the characters configured on GentrackMaze (WALL, START, END, PATH and PASSAGE) and end with a new line.
+ * </p>
+ */
+final class SolutionRenderer {
+    private final MazeGrid grid;
+    private final int start;
+    private final int end;
+    // One bit per cell, set if the cell lies on the route.
+    private final long[] onRoute;
+
+    /**
+     * SolutionRenderer constructor.
+     *
+     * @param grid  The grid to draw.
+     * @param route Cell indices of the route from start to finish (may be empty).
+     * @param start Cell index of the start.
+     * @param end   Cell index of the end.
+     */
+    SolutionRenderer(MazeGrid grid, int[] route, int start, int end) {
+        this.grid = grid;
+        this.start = start;
+        this.end = end;
+        this.onRoute = new long[(grid.size() + 63) >>> 6];
+        for (int index : route) {
+            onRoute[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * @return Returns the length of a row including its new line.
+     */
+    int rowLength() {
+        return grid.width() + 1;
+    }
+
+    /**
+     * Draws a row of the maze.
+     *
+     * @param yCoord The row to draw.
+     * @param row    A buffer of at least rowLength bytes.
+     */
+    void fillRow(int yCoord, byte[] row) {
+        final int width = grid.width();
+        int index = grid.index(0, yCoord);
+        for (int xCoord = 0; xCoord < width; xCoord++, index++) {
+            char symbol;
+            if (grid.isPassage(index)) {
+                // The start and end are marked even when there is no route between them.
+                if (index == start) {
+                    symbol = GentrackMaze.START;
+                } else if (index == end) {
+                    symbol = GentrackMaze.END;
+                } else if ((onRoute[index >>> 6] & (1L << index)) != 0) {
+                    symbol = GentrackMaze.PATH;
+                } else {
+                    symbol = GentrackMaze.PASSAGE;
+                }
+                // If not a passage then must be a wall.
+            } else symbol = GentrackMaze.WALL;
+            row[xCoord] = (byte) symbol;
+        }
+        // New line (end of X).
+        row[width] = '\n';
+    }
+
+    /**
+     * Draws a row of the maze as characters.
+     *
+     * @param yCoord The row to draw.
+     * @param bytes  A buffer of at least rowLength bytes to draw into first.
+     * @param row    A buffer of at least rowLength characters.
+     */
+    void fillRow(int yCoord, byte[] bytes, char[] row) {
+        fillRow(yCoord, bytes);
+        for (int position = 0; position < row.length; position++) {
+            row[position] = (char) bytes[position];
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package sys;
+
+/**
+ * <p>A SolveListener is told about the work done by every GentrackMaze (see GentrackMaze.addListener), for feeding metrics and dashboards without a profiler.
+ * Listeners are called on the thread doing the work, including the pool threads of solveAll, so implementations must be thread-safe and quick.
+ * </p>
+ */
+public interface SolveListener {
+
+    /**
+     * Called once a maze has been loaded.
+     *
+     * @param nanos Time taken to load the maze in nanoseconds.
+     */
+    default void onParse(long nanos) {
+    }
+
+    /**
+     * Called after every search, whether or not a route was found.
+     *
+     * @param stats The stats of the search (without a render time).
+     */
+    void onSolve(SolveStats stats);
+
+    /**
+     * Called after a solution has been printed.
+     *
+     * @param stats The stats of the search which was printed, including the render time.
+     */
+    default void onRender(SolveStats stats) {
+    }
+}
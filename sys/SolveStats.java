@@ -0,0 +1,107 @@
+package sys;
+
+/**
+ * SolveStats records how much work a single solve did, from loading the maze through to printing its solution.
+ * Times are in nanoseconds. A render time of -1 means the solution has not been printed (yet).
+ */
+public final class SolveStats {
+    private final long parseNanos;
+    private final long solveNanos;
+    private final long nodesExpanded;
+    private final int peakFrontier;
+    private final int pathLength;
+    private final long renderNanos;
+
+    /**
+     * SolveStats constructor.
+     *
+     * @param parseNanos    Time taken to load the maze.
+     * @param solveNanos    Time taken by the search.
+     * @param nodesExpanded The number of nodes expanded by the search.
+     * @param peakFrontier  The largest number of entries the frontier of the search held at once.
+     * @param pathLength    The number of steps on the route found, or -1 if no route was found.
+     * @param renderNanos   Time taken to print the solution, or -1 if it has not been printed.
+     */
+    SolveStats(long parseNanos, long solveNanos, long nodesExpanded, int peakFrontier, int pathLength, long renderNanos) {
+        this.parseNanos = parseNanos;
+        this.solveNanos = solveNanos;
+        this.nodesExpanded = nodesExpanded;
+        this.peakFrontier = peakFrontier;
+        this.pathLength = pathLength;
+        this.renderNanos = renderNanos;
+    }
+
+    /**
+     * @param renderNanos Time taken to print the solution.
+     * @return Returns a copy of the stats including the render time.
+     */
+    SolveStats withRenderNanos(long renderNanos) {
+        return new SolveStats(parseNanos, solveNanos, nodesExpanded, peakFrontier, pathLength, renderNanos);
+    }
+
+    /**
+     * @return Returns the time taken to load the maze in nanoseconds.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return Returns the time taken by the search in nanoseconds.
+     */
+    public long getSolveNanos() {
+        return solveNanos;
+    }
+
+    /**
+     * @return Returns the number of nodes expanded by the search.
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return Returns the largest number of entries the frontier of the search held at once.
+     */
+    public int getPeakFrontier() {
+        return peakFrontier;
+    }
+
+    /**
+     * @return Returns the number of steps on the route found, or -1 if no route was found.
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * @return Returns true if a route was found.
+     */
+    public boolean isFound() {
+        return pathLength >= 0;
+    }
+
+    /**
+     * @return Returns the time taken to print the solution in nanoseconds, or -1 if it has not been printed.
+     */
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * The string representation of the stats.
+     *
+     * @return Returns the string representation of the stats in the format SolveStats{parseNanos=.., solveNanos=.., ...}.
+     */
+    @Override
+    public String toString() {
+        return "SolveStats{" +
+                "parseNanos=" + parseNanos +
+                ", solveNanos=" + solveNanos +
+                ", nodesExpanded=" + nodesExpanded +
+                ", peakFrontier=" + peakFrontier +
+                ", pathLength=" + pathLength +
+                ", renderNanos=" + renderNanos +
+                '}';
+    }
+}
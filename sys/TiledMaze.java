@@ -0,0 +1,544 @@
+package sys;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>The TiledMaze solves mazes too large to hold on the heap. The maze is kept on disk in the binary format (see BinaryMazeFormat.convert, which streams a text file of any size)
+ * and is split into bands of whole rows. A band is memory-mapped and copied into a MazeGrid of its own only while it is needed, and a few recently used bands are kept.
+ * </p>
+ * <p>
+ * When the maze is opened every band is read once to summarise it: the passages of its top and bottom rows are grouped by the component of the band they belong to,
+ * and the components are joined to the components of the neighbouring bands wherever a passage on one border row sits over a passage on the next.
+ * A solve searches this graph of border components (breadth first, so as few borders are crossed as possible) and then only visits the bands on the route it found,
+ * where each leg is solved within its band with the BreadthFirstSolver.
+ * </p>
+ * <p>
+ * Heap use is bounded by the size of a band (one bit per cell, plus a label and the search state of the band solvers per cell) and the summaries of the border rows,
+ * never by the size of the maze. Solving and writing solutions may be called from any thread.
+ * </p>
+ */
+public final class TiledMaze implements Closeable {
+    // The number of bands held on the heap at once.
+    private static final int CACHED_BANDS = 4;
+    private static final MazeSolver BAND_SOLVER = new BreadthFirstSolver();
+    private final Path path;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int startX;
+    private final int startY;
+    private final int endX;
+    private final int endY;
+    private final int bandRows;
+    private final int bands;
+    // Recently used bands by band number, least recently used first.
+    private final Map<Integer, MazeGrid> cache = new LinkedHashMap<Integer, MazeGrid>(CACHED_BANDS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MazeGrid> eldest) {
+            return size() > CACHED_BANDS;
+        }
+    };
+    // The border components of band b are numbered firstNode[b] .. firstNode[b + 1] - 1.
+    private final int[] firstNode;
+    // The joins between border components, the joins of component n being edgeStart[n] .. edgeStart[n + 1] - 1.
+    private int[] edgeStart;
+    // The component each join leads to, and the column the join crosses the border at.
+    private int[] edgeTarget;
+    private int[] edgeColumn;
+    // Border labels of one band (see labelBorders), reused by every solve and guarded by the array. Bands never change, so the labels of the band last labelled stay valid.
+    private final int[] labels;
+    private int labelledBand = -1;
+
+    /**
+     * TiledMaze constructor. Reads and summarises every band.
+     *
+     * @param file     A binary maze file.
+     * @param bandRows The number of rows held in each band.
+     * @throws IOException Throws an IO exception if the file cannot be read or is not a binary maze file.
+     */
+    private TiledMaze(File file, int bandRows) throws IOException {
+        this.path = file.toPath();
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = BinaryMazeFormat.readHeader(channel, path);
+            this.width = header.getInt(8);
+            this.height = header.getInt(12);
+            this.startX = header.getInt(16);
+            this.startY = header.getInt(20);
+            this.endX = header.getInt(24);
+            this.endY = header.getInt(28);
+            if (bandRows <= 0 || (long) bandRows * width > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Bands of " + bandRows + " rows of " + width + " cells cannot be held on the heap");
+            }
+            this.bandRows = Math.min(bandRows, height);
+            this.bands = (height + this.bandRows - 1) / this.bandRows;
+            this.labels = new int[this.bandRows * width];
+            this.firstNode = new int[bands + 1];
+            summarise();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a maze stored in the binary format (see BinaryMazeFormat) without loading it onto the heap.
+     *
+     * @param file     The file to open, which is held open until the maze is closed.
+     * @param bandRows The number of rows held on the heap at once for each band (a band of width * bandRows cells must fit in an int).
+     * @return Returns the maze, with every band summarised.
+     * @throws IOException Throws an IO exception if the file cannot be read or is not a binary maze file.
+     */
+    public static TiledMaze open(File file, int bandRows) throws IOException {
+        return new TiledMaze(file, bandRows);
+    }
+
+    /**
+     * Reads each band in turn, numbering the components touching its border rows and joining them to the components of the band above.
+     */
+    private void summarise() throws IOException {
+        int[] previousBottom = new int[width];
+        // Joins are collected in both directions, and then laid out by component.
+        IntDeque from = new IntDeque(1024);
+        IntDeque to = new IntDeque(1024);
+        IntDeque columns = new IntDeque(1024);
+        int nodes = 0;
+        for (int band = 0; band < bands; band++) {
+            MazeGrid grid = loadBand(band);
+            firstNode[band] = nodes;
+            int components = labelBorders(grid, labels);
+            if (band > 0) {
+                for (int xCoord = 0; xCoord < width; xCoord++) {
+                    if (previousBottom[xCoord] != 0 && labels[xCoord] != 0) {
+                        int above = firstNode[band - 1] + previousBottom[xCoord] - 1;
+                        int below = nodes + labels[xCoord] - 1;
+                        from.addLast(above);
+                        to.addLast(below);
+                        columns.addLast(xCoord);
+                        from.addLast(below);
+                        to.addLast(above);
+                        columns.addLast(xCoord);
+                    }
+                }
+            }
+            System.arraycopy(labels, grid.index(0, grid.height() - 1), previousBottom, 0, width);
+            nodes += components;
+        }
+        firstNode[bands] = nodes;
+        labelledBand = bands - 1;
+        edgeStart = new int[nodes + 1];
+        edgeTarget = new int[from.size()];
+        edgeColumn = new int[from.size()];
+        for (int edge = 0; edge < from.size(); edge++) {
+            edgeStart[from.get(edge) + 1]++;
+        }
+        for (int node = 0; node < nodes; node++) {
+            edgeStart[node + 1] += edgeStart[node];
+        }
+        int[] filled = Arrays.copyOf(edgeStart, nodes);
+        for (int edge = 0; edge < from.size(); edge++) {
+            int slot = filled[from.get(edge)]++;
+            edgeTarget[slot] = to.get(edge);
+            edgeColumn[slot] = columns.get(edge);
+        }
+    }
+
+    /**
+     * Labels the components of a band which touch its top or bottom row, numbering them from 1 (passages of other components and walls are labelled 0).
+     *
+     * @param grid   The band.
+     * @param labels Receives the label of each cell of the band.
+     * @return Returns the number of components touching the border rows.
+     */
+    private static int labelBorders(MazeGrid grid, int[] labels) {
+        Arrays.fill(labels, 0, grid.size(), 0);
+        IntDeque queue = new IntDeque(64);
+        int components = 0;
+        final int bottom = grid.index(0, grid.height() - 1);
+        for (int position = 0; position < grid.width() * 2; position++) {
+            int cell = position < grid.width() ? position : bottom + position - grid.width();
+            if (!grid.isPassage(cell) || labels[cell] != 0) {
+                continue;
+            }
+            // Flood the component from the border cell.
+            labels[cell] = ++components;
+            queue.addLast(cell);
+            while (!queue.isEmpty()) {
+                int current = queue.pollFirst();
+                for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                    int next = grid.passageNeighbor(current, direction);
+                    if (next != MazeGrid.NONE && labels[next] == 0) {
+                        labels[next] = components;
+                        queue.addLast(next);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Maps a band of the file and copies its cells into a grid of its own.
+     *
+     * @param band The band to load.
+     * @return Returns the cells of the band, row 0 of the grid being the first row of the band.
+     * @throws IOException Throws an IO exception if the file cannot be read.
+     */
+    private MazeGrid loadBand(int band) throws IOException {
+        int firstRow = band * bandRows;
+        int rows = Math.min(bandRows, height - firstRow);
+        int size = rows * width;
+        long firstCell = (long) firstRow * width;
+        long firstWord = firstCell >>> 6;
+        long lastWord = (firstCell + size - 1) >>> 6;
+        LongBuffer source = channel.map(FileChannel.MapMode.READ_ONLY, BinaryMazeFormat.HEADER_BYTES + firstWord * Long.BYTES, (lastWord - firstWord + 1) * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        // A band rarely starts on a word boundary, so each word of the band is put together from two words of the file.
+        final int shift = (int) (firstCell & 63);
+        long[] cells = new long[(size + 63) >>> 6];
+        for (int word = 0; word < cells.length; word++) {
+            long bits = source.get(word) >>> shift;
+            if (shift != 0 && word + 1 < source.limit()) {
+                bits |= source.get(word + 1) << (64 - shift);
+            }
+            cells[word] = bits;
+        }
+        if ((size & 63) != 0) {
+            // Clear the cells of the next band picked up by the last word.
+            cells[cells.length - 1] &= (1L << size) - 1;
+        }
+        return new MazeGrid(width, rows, cells);
+    }
+
+    /**
+     * Returns a band, loading it if it is not one of the bands held.
+     *
+     * @param band The band.
+     * @return Returns the cells of the band.
+     */
+    private MazeGrid band(int band) {
+        synchronized (cache) {
+            MazeGrid grid = cache.get(band);
+            if (grid == null) {
+                try {
+                    grid = loadBand(band);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read band " + band + " of " + path, e);
+                }
+                cache.put(band, grid);
+            }
+            return grid;
+        }
+    }
+
+    /**
+     * @return Returns the width of the maze.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Returns the height of the maze.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Returns the start x coordinate.
+     */
+    public int getStartX() {
+        return startX;
+    }
+
+    /**
+     * @return Returns the start y coordinate.
+     */
+    public int getStartY() {
+        return startY;
+    }
+
+    /**
+     * @return Returns the end x coordinate.
+     */
+    public int getEndX() {
+        return endX;
+    }
+
+    /**
+     * @return Returns the end y coordinate.
+     */
+    public int getEndY() {
+        return endY;
+    }
+
+    /**
+     * @return Returns the number of rows in each band (the last band may hold fewer).
+     */
+    public int getBandRows() {
+        return bandRows;
+    }
+
+    /**
+     * @return Returns the number of bands.
+     */
+    public int getBandCount() {
+        return bands;
+    }
+
+    /**
+     * @return Returns the number of band components touching a band border, the nodes of the summary graph searched by solve.
+     */
+    public int getBorderComponentCount() {
+        return firstNode[bands];
+    }
+
+    /**
+     * @param xCoord X coordinate.
+     * @param yCoord Y coordinate.
+     * @return Returns true if the coordinate lies within the maze and is a passage. Loads the band of the coordinate if it is not held.
+     */
+    public boolean isPassage(int xCoord, int yCoord) {
+        if (xCoord < 0 || yCoord < 0 || xCoord >= width || yCoord >= height) {
+            return false;
+        }
+        return band(yCoord / bandRows).isPassage(xCoord, yCoord % bandRows);
+    }
+
+    /**
+     * Solves the maze from the start to the end given in the file.
+     *
+     * @return Returns the route found (see TiledRoute).
+     */
+    public TiledRoute solve() {
+        return solve(startX, startY, endX, endY);
+    }
+
+    /**
+     * Solves the maze between two coordinates, visiting only the bands of the start, the end and the route between them.
+     *
+     * @param fromX Start x coordinate.
+     * @param fromY Start y coordinate.
+     * @param toX   End x coordinate.
+     * @param toY   End y coordinate.
+     * @return Returns the route found, or a route which was not found if there is no route or either coordinate is not a passage.
+     */
+    public TiledRoute solve(int fromX, int fromY, int toX, int toY) {
+        if (!isPassage(fromX, fromY) || !isPassage(toX, toY)) {
+            return TiledRoute.notFound(fromX, fromY, toX, toY, 0);
+        }
+        final int startBand = fromY / bandRows;
+        final int endBand = toY / bandRows;
+        final int start = band(startBand).index(fromX, fromY % bandRows);
+        final int end = band(endBand).index(toX, toY % bandRows);
+        final int startLabel = borderLabel(startBand, start);
+        final int endLabel = startBand == endBand && startLabel == 0 ? 0 : borderLabel(endBand, end);
+        if (startBand == endBand && startLabel == endLabel) {
+            // Both in one component of the band, or both away from the borders where only a route within the band can join them.
+            Route route = BAND_SOLVER.solve(band(startBand), start, end);
+            if (!route.isFound()) {
+                return TiledRoute.notFound(fromX, fromY, toX, toY, route.nodesExpanded());
+            }
+            return new TiledRoute(fromX, fromY, toX, toY, new int[]{startBand}, new int[]{start}, new int[]{end}, route.length(), route.nodesExpanded());
+        }
+        if (startLabel == 0 || endLabel == 0) {
+            // A component which never reaches a border cannot leave its band.
+            return TiledRoute.notFound(fromX, fromY, toX, toY, 0);
+        }
+        // Breadth first search of the border components, recording the join each component was reached by.
+        final int source = firstNode[startBand] + startLabel - 1;
+        final int target = firstNode[endBand] + endLabel - 1;
+        int[] via = new int[firstNode[bands]];
+        Arrays.fill(via, -1);
+        via[source] = Integer.MAX_VALUE;
+        IntDeque queue = new IntDeque(64);
+        queue.addLast(source);
+        long expanded = 0;
+        while (!queue.isEmpty() && via[target] == -1) {
+            int node = queue.pollFirst();
+            expanded++;
+            for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+                if (via[edgeTarget[edge]] == -1) {
+                    via[edgeTarget[edge]] = edge;
+                    queue.addLast(edgeTarget[edge]);
+                }
+            }
+        }
+        if (via[target] == -1) {
+            return TiledRoute.notFound(fromX, fromY, toX, toY, expanded);
+        }
+        // Collect the joins taken, last first.
+        IntDeque joins = new IntDeque(16);
+        for (int node = target; node != source; node = nodeBefore(via[node])) {
+            joins.addLast(via[node]);
+        }
+        final int legs = joins.size() + 1;
+        int[] legBands = new int[legs];
+        int[] legFrom = new int[legs];
+        int[] legTo = new int[legs];
+        legBands[0] = startBand;
+        legFrom[0] = start;
+        for (int leg = 1; leg < legs; leg++) {
+            int edge = joins.get(legs - 1 - leg);
+            int band = bandOf(edgeTarget[edge]);
+            boolean down = band > legBands[leg - 1];
+            MazeGrid above = band(legBands[leg - 1]);
+            // The route leaves the last band by one border row and enters the next band by the facing border row, in the same column.
+            legTo[leg - 1] = above.index(edgeColumn[edge], down ? above.height() - 1 : 0);
+            legBands[leg] = band;
+            legFrom[leg] = band(band).index(edgeColumn[edge], down ? 0 : band(band).height() - 1);
+        }
+        legTo[legs - 1] = end;
+        // Each crossing of a border is a step of its own.
+        long length = legs - 1;
+        for (int leg = 0; leg < legs; leg++) {
+            Route route = BAND_SOLVER.solve(band(legBands[leg]), legFrom[leg], legTo[leg]);
+            assert route.isFound();
+            length += route.length();
+            expanded += route.nodesExpanded();
+        }
+        return new TiledRoute(fromX, fromY, toX, toY, legBands, legFrom, legTo, length, expanded);
+    }
+
+    /**
+     * @param band A band.
+     * @param cell A passage of the band.
+     * @return Returns the label of the border component the passage belongs to, or 0 if its component does not touch a border row of the band.
+     */
+    private int borderLabel(int band, int cell) {
+        MazeGrid grid = band(band);
+        synchronized (labels) {
+            if (labelledBand != band) {
+                labelBorders(grid, labels);
+                labelledBand = band;
+            }
+            return labels[cell];
+        }
+    }
+
+    /**
+     * @param node A border component.
+     * @return Returns the band the component belongs to.
+     */
+    private int bandOf(int node) {
+        int band = Arrays.binarySearch(firstNode, node);
+        if (band < 0) {
+            return -band - 2;
+        }
+        // Skip over bands without border components, which share their first node with the next band.
+        while (firstNode[band + 1] == node) {
+            band++;
+        }
+        return band;
+    }
+
+    /**
+     * @param edge A join between border components.
+     * @return Returns the component the join leaves from.
+     */
+    private int nodeBefore(int edge) {
+        // Joins are laid out by the component they leave from, so find the component whose joins hold the edge.
+        int node = Arrays.binarySearch(edgeStart, edge);
+        if (node < 0) {
+            return -node - 2;
+        }
+        // Skip over components without joins, which share their first edge with the next component.
+        while (edgeStart[node + 1] == edge) {
+            node++;
+        }
+        return node;
+    }
+
+    /**
+     * Writes the solution to a stream as ASCII row by row (in the same format as GentrackMaze.writeSolution), one band at a time.
+     * The legs of the route in each band are solved again as the band is written, so only one band of the route is ever held.
+     *
+     * @param route A route found by solve (a route which was not found writes the maze with only its start and end marked).
+     * @param out   The stream to write to, flushed once the solution has been written.
+     * @throws IOException Throws an IO exception if the stream cannot be written.
+     */
+    public void writeSolution(TiledRoute route, OutputStream out) throws IOException {
+        byte[] row = new byte[width + 1];
+        IntDeque cells = new IntDeque(64);
+        final int lastLeg = route.legCount() - 1;
+        for (int band = 0; band < bands; band++) {
+            MazeGrid grid = band(band);
+            // The start and end are marked whether or not a route was found, as GentrackMaze.writeSolution does.
+            int start = cellOf(band, grid, route.getFromX(), route.getFromY());
+            int end = cellOf(band, grid, route.getToX(), route.getToY());
+            cells.clear();
+            for (int leg = 0; leg <= lastLeg; leg++) {
+                if (route.legBand(leg) != band) {
+                    continue;
+                }
+                for (int cell : BAND_SOLVER.solve(grid, route.legFrom(leg), route.legTo(leg)).cellArray()) {
+                    cells.addLast(cell);
+                }
+            }
+            int[] onRoute = new int[cells.size()];
+            for (int position = 0; position < onRoute.length; position++) {
+                onRoute[position] = cells.get(position);
+            }
+            SolutionRenderer renderer = new SolutionRenderer(grid, onRoute, start, end);
+            for (int yCoord = 0; yCoord < grid.height(); yCoord++) {
+                renderer.fillRow(yCoord, row);
+                out.write(row);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return Returns the cell index within the band of a coordinate of the maze, or -1 if the coordinate does not lie within the band.
+     */
+    private int cellOf(int band, MazeGrid grid, int xCoord, int yCoord) {
+        int row = yCoord - band * bandRows;
+        if (xCoord < 0 || xCoord >= width || row < 0 || row >= grid.height()) {
+            return -1;
+        }
+        return grid.index(xCoord, row);
+    }
+
+    /**
+     * Closes the file and drops the bands held.
+     *
+     * @throws IOException Throws an IO exception if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (cache) {
+            cache.clear();
+        }
+        channel.close();
+    }
+
+    /**
+     * The string representation of the maze (does not include the bands themselves).
+     *
+     * @return Returns the string representation of the maze in the format TiledMaze{width=.., height=.., bandRows=.., bands=.., borderComponents=..}.
+     */
+    @Override
+    public String toString() {
+        return "TiledMaze{" +
+                "width=" + width +
+                ", height=" + height +
+                ", bandRows=" + bandRows +
+                ", bands=" + bands +
+                ", borderComponents=" + getBorderComponentCount() +
+                '}';
+    }
+}
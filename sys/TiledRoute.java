@@ -0,0 +1,159 @@
+package sys;
+
+/**
+ * <p>A TiledRoute is the result of a TiledMaze search. The route is held as legs rather than cells, a leg being the stretch of the route within one band of rows,
+ * from the cell it enters the band by to the cell it leaves by. The cells of each leg are found again band by band when the solution is written out,
+ * so a route across billions of cells never has to be held on the heap.
+ * </p>
+ * <p>
+ * Within a band each leg is a shortest route, but the bands are chosen to cross as few band borders as possible, so the route as a whole is not necessarily the shortest.
+ * </p>
+ */
+public final class TiledRoute {
+    private static final int[] NO_LEGS = new int[0];
+    private final boolean found;
+    // The endpoints searched between, in coordinates of the whole maze (kept when no route was found, so they can still be marked).
+    private final int fromX;
+    private final int fromY;
+    private final int toX;
+    private final int toY;
+    private final long length;
+    private final long nodesExpanded;
+    // The band of each leg, and the band cell indices the leg starts and ends on.
+    private final int[] legBands;
+    private final int[] legFrom;
+    private final int[] legTo;
+
+    /**
+     * TiledRoute constructor.
+     *
+     * @param fromX         Start x coordinate.
+     * @param fromY         Start y coordinate.
+     * @param toX           End x coordinate.
+     * @param toY           End y coordinate.
+     * @param legBands      The band of each leg, or null if no route was found.
+     * @param legFrom       The cell index within its band each leg starts on.
+     * @param legTo         The cell index within its band each leg ends on.
+     * @param length        The number of steps taken by the route.
+     * @param nodesExpanded The number of border components and passages expanded by the search.
+     */
+    TiledRoute(int fromX, int fromY, int toX, int toY, int[] legBands, int[] legFrom, int[] legTo, long length, long nodesExpanded) {
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.toX = toX;
+        this.toY = toY;
+        this.found = legBands != null;
+        this.legBands = found ? legBands : NO_LEGS;
+        this.legFrom = found ? legFrom : NO_LEGS;
+        this.legTo = found ? legTo : NO_LEGS;
+        this.length = found ? length : -1;
+        this.nodesExpanded = nodesExpanded;
+    }
+
+    /**
+     * @param fromX         Start x coordinate.
+     * @param fromY         Start y coordinate.
+     * @param toX           End x coordinate.
+     * @param toY           End y coordinate.
+     * @param nodesExpanded The number of border components and passages expanded by the search.
+     * @return Returns a route which was not found.
+     */
+    static TiledRoute notFound(int fromX, int fromY, int toX, int toY, long nodesExpanded) {
+        return new TiledRoute(fromX, fromY, toX, toY, null, null, null, -1, nodesExpanded);
+    }
+
+    /**
+     * @return Returns true if a route was found.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * @return Returns the number of steps taken by the route, or -1 if no route was found.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return Returns the number of border components and passages expanded by the search.
+     */
+    public long nodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return Returns the start x coordinate searched from.
+     */
+    public int getFromX() {
+        return fromX;
+    }
+
+    /**
+     * @return Returns the start y coordinate searched from.
+     */
+    public int getFromY() {
+        return fromY;
+    }
+
+    /**
+     * @return Returns the end x coordinate searched for.
+     */
+    public int getToX() {
+        return toX;
+    }
+
+    /**
+     * @return Returns the end y coordinate searched for.
+     */
+    public int getToY() {
+        return toY;
+    }
+
+    /**
+     * @return Returns the number of legs (stretches within one band) the route is made of.
+     */
+    public int legCount() {
+        return legBands.length;
+    }
+
+    /**
+     * @param leg A leg of the route.
+     * @return Returns the band the leg lies within.
+     */
+    int legBand(int leg) {
+        return legBands[leg];
+    }
+
+    /**
+     * @param leg A leg of the route.
+     * @return Returns the cell index within its band the leg starts on.
+     */
+    int legFrom(int leg) {
+        return legFrom[leg];
+    }
+
+    /**
+     * @param leg A leg of the route.
+     * @return Returns the cell index within its band the leg ends on.
+     */
+    int legTo(int leg) {
+        return legTo[leg];
+    }
+
+    /**
+     * The string representation of the route (does not include the legs themselves).
+     *
+     * @return Returns the string representation of the route in the format TiledRoute{found=.., length=.., legs=.., nodesExpanded=..}.
+     */
+    @Override
+    public String toString() {
+        return "TiledRoute{" +
+                "found=" + found +
+                ", length=" + length +
+                ", legs=" + legBands.length +
+                ", nodesExpanded=" + nodesExpanded +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package sys;
+
+/**
+ * <p>The WordHash mixes a run of 64 bit words into a 64 bit hash (a rotate and multiply per word, then a finalising avalanche), for keying mazes by their content.
+ * Start from SEED, mix in every word and finish. The hash is fast and well spread but not cryptographic.
+ * </p>
+ */
+final class WordHash {
+    private static final long PRIME_1 = 0x9E3779B97F4A7C15L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    // The hash to start from.
+    static final long SEED = PRIME_1;
+
+    private WordHash() {
+    }
+
+    /**
+     * @param hash The hash so far.
+     * @param word The next word.
+     * @return Returns the hash with the word mixed in.
+     */
+    static long mix(long hash, long word) {
+        return Long.rotateLeft(hash ^ (word * PRIME_2), 31) * PRIME_1;
+    }
+
+    /**
+     * Mixes the bits of the last words through the whole hash.
+     *
+     * @param hash The hash of every word.
+     * @return Returns the final hash.
+     */
+    static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        return hash;
+    }
+}
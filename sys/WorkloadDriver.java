@@ -0,0 +1,107 @@
+package sys;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The WorkloadDriver times GentrackMaze end to end (parse, solve() and render) over generated mazes of every MazeGenerator topology at a range of sizes,
+ * to see how each stage scales with the size and shape of a maze before reaching for the finer grained JMH benchmarks.
+ * </p>
+ * <p>
+ * Mazes are generated into a directory on first use and kept there, so repeated runs time the same mazes. Each maze is parsed, solved and rendered
+ * (to a stream which discards it) a few times and the fastest time of each stage is reported, along with the route length and the passages expanded.
+ * Unsolvable mazes are not rendered.
+ * </p>
+ */
+public final class WorkloadDriver {
+    private static final long SEED = 20180214L;
+    private static final int REPEATS = 3;
+    private static final int[] DEFAULT_SIZES = {101, 501, 1001, 2001};
+
+    private WorkloadDriver() {
+    }
+
+    /**
+     * Generates (if need be) and times a maze of each topology at each size, printing a row per maze.
+     *
+     * @param args The directory to keep generated mazes in, followed by the width and height of the mazes to time (101, 501, 1001 and 2001 if none are given).
+     * @throws IOException Throws an IO exception if a maze cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: WorkloadDriver <maze directory> [size ...]");
+            System.exit(2);
+        }
+        File directory = new File(args[0]);
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int index = 1; index < args.length; index++) {
+                sizes[index - 1] = Integer.parseInt(args[index]);
+            }
+        }
+        directory.mkdirs();
+        System.out.println(String.format(Locale.ROOT, "%-10s %6s %10s %10s %10s %10s %10s %12s",
+                "topology", "size", "bytes", "parse ms", "solve ms", "render ms", "length", "expanded"));
+        for (MazeGenerator.Topology topology : MazeGenerator.Topology.values()) {
+            for (int size : sizes) {
+                File maze = generated(directory, topology, size);
+                System.out.println(time(topology, size, maze));
+            }
+        }
+    }
+
+    /**
+     * Returns a generated maze from the directory, generating it if it is not there yet.
+     *
+     * @param directory The directory generated mazes are kept in.
+     * @param topology  The shape of the maze.
+     * @param size      The width and height of the maze.
+     * @return Returns the maze file.
+     * @throws IOException Throws an IO exception if the maze cannot be written.
+     */
+    static File generated(File directory, MazeGenerator.Topology topology, int size) throws IOException {
+        File maze = new File(directory, topology.name().toLowerCase(Locale.ROOT) + "-" + size + "-" + SEED + ".txt");
+        if (!maze.exists()) {
+            // Written aside and renamed, so an interrupted run does not leave half a maze behind.
+            File partial = new File(directory, maze.getName() + ".partial");
+            new MazeGenerator(SEED).write(topology, size, size, partial);
+            if (!partial.renameTo(maze)) {
+                throw new IOException("Could not rename " + partial + " to " + maze);
+            }
+        }
+        return maze;
+    }
+
+    /**
+     * Parses, solves and renders a maze REPEATS times.
+     *
+     * @return Returns a row of the table of results holding the fastest time of each stage.
+     */
+    private static String time(MazeGenerator.Topology topology, int size, File file) throws IOException {
+        long parseNanos = Long.MAX_VALUE;
+        long solveNanos = Long.MAX_VALUE;
+        long renderNanos = Long.MAX_VALUE;
+        SolveStats stats = null;
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+            GentrackMaze maze = new GentrackMaze(file);
+            if (maze.solve()) {
+                maze.writeSolution(OutputStream.nullOutputStream());
+            }
+            stats = maze.getStats();
+            parseNanos = Math.min(parseNanos, stats.getParseNanos());
+            solveNanos = Math.min(solveNanos, stats.getSolveNanos());
+            renderNanos = Math.min(renderNanos, stats.getRenderNanos());
+        }
+        return String.format(Locale.ROOT, "%-10s %6d %10d %10.2f %10.2f %10s %10d %12d",
+                topology.name().toLowerCase(Locale.ROOT), size, file.length(), millis(parseNanos), millis(solveNanos),
+                stats.isFound() ? String.format(Locale.ROOT, "%.2f", millis(renderNanos)) : "-", stats.getPathLength(), stats.getNodesExpanded());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
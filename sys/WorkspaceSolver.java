@@ -0,0 +1,180 @@
+package sys;
+
+/**
+ * <p>The WorkspaceSolver is a breadth first search (so its routes are shortest routes, the same as the BreadthFirstSolver) which allocates nothing once warmed up.
+ * Its queue, seen bitset and signs live in a workspace held per thread and reused by every search on that thread, and are only grown when a larger grid comes along.
+ * Rather than clearing the whole seen bitset before each search, the words of the cells the last search queued are cleared after it, so a short search costs only what it visits.
+ * </p>
+ * <p>
+ * distance and route (which fills an array supplied by the caller) allocate no objects at all, for running millions of small solves without garbage collection.
+ * solve allocates only the Route it returns. A workspace keeps the arrays of the largest grid its thread has searched (four bytes a cell plus three bits),
+ * see releaseWorkspace.
+ * </p>
+ */
+public final class WorkspaceSolver implements MazeSolver {
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    @Override
+    public Route solve(MazeGrid grid, int start, int end) {
+        Workspace workspace = WORKSPACES.get();
+        int length = search(grid, start, end, workspace);
+        Route route;
+        if (length < 0) {
+            route = Route.notFound(workspace.expanded, workspace.peakFrontier);
+        } else {
+            int[] cells = new int[length + 1];
+            trace(grid, start, end, length, cells, workspace);
+            route = new Route(cells, workspace.expanded, workspace.peakFrontier);
+        }
+        workspace.clear();
+        return route;
+    }
+
+    /**
+     * Finds the length of a shortest route without allocating.
+     *
+     * @param grid  The grid to search.
+     * @param start Cell index of the start passage.
+     * @param end   Cell index of the end passage.
+     * @return Returns the number of steps on a shortest route, or -1 if there is no route.
+     */
+    public int distance(MazeGrid grid, int start, int end) {
+        Workspace workspace = WORKSPACES.get();
+        int length = search(grid, start, end, workspace);
+        workspace.clear();
+        return length;
+    }
+
+    /**
+     * Finds a shortest route without allocating, writing its cells into an array supplied by the caller.
+     *
+     * @param grid  The grid to search.
+     * @param start Cell index of the start passage.
+     * @param end   Cell index of the end passage.
+     * @param cells Receives the cell indices of the route from start to finish if it holds at least length + 1 cells (otherwise it is left untouched).
+     * @return Returns the number of steps on the route, or -1 if there is no route.
+     */
+    public int route(MazeGrid grid, int start, int end, int[] cells) {
+        Workspace workspace = WORKSPACES.get();
+        int length = search(grid, start, end, workspace);
+        if (length >= 0 && length < cells.length) {
+            trace(grid, start, end, length, cells, workspace);
+        }
+        workspace.clear();
+        return length;
+    }
+
+    /**
+     * Drops the workspace of the calling thread, releasing its arrays. The next search on the thread starts a new workspace.
+     */
+    public static void releaseWorkspace() {
+        WORKSPACES.remove();
+    }
+
+    /**
+     * Searches breadth first from the start until the end is discovered, leaving the signs of the search in the workspace.
+     *
+     * @return Returns the number of steps on a shortest route, or -1 if there is no route.
+     */
+    private static int search(MazeGrid grid, int start, int end, Workspace workspace) {
+        assert grid.isPassage(start);
+        assert grid.isPassage(end);
+        workspace.ensureCapacity(grid.size());
+        final int[] queue = workspace.queue;
+        final long[] seen = workspace.seen;
+        final long[] signs = workspace.signs;
+        // Every cell is queued at most once, so the queue never wraps and doubles as the list of cells to clear.
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        seen[start >>> 6] |= 1L << start;
+        int peakFrontier = 1;
+        boolean found = start == end;
+        while (!found && head < tail) {
+            int current = queue[head++];
+            for (int direction = MazeGrid.NORTH; direction <= MazeGrid.WEST; direction++) {
+                int neighbour = grid.passageNeighbor(current, direction);
+                if (neighbour == MazeGrid.NONE || (seen[neighbour >>> 6] & (1L << neighbour)) != 0) {
+                    continue;
+                }
+                seen[neighbour >>> 6] |= 1L << neighbour;
+                int shift = (neighbour & 31) << 1;
+                signs[neighbour >>> 5] = (signs[neighbour >>> 5] & ~(3L << shift)) | ((long) MazeGrid.opposite(direction) << shift);
+                queue[tail++] = neighbour;
+                if (neighbour == end) {
+                    found = true;
+                    break;
+                }
+            }
+            peakFrontier = Math.max(peakFrontier, tail - head);
+        }
+        workspace.queued = tail;
+        workspace.expanded = head;
+        workspace.peakFrontier = peakFrontier;
+        if (!found) {
+            return -1;
+        }
+        // Count the steps back along the signs.
+        int length = 0;
+        for (int cell = end; cell != start; cell = grid.neighbor(cell, sign(signs, cell))) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Follows the signs of the last search back from the end, filling in the cells of the route from the back.
+     */
+    private static void trace(MazeGrid grid, int start, int end, int length, int[] cells, Workspace workspace) {
+        int cell = end;
+        for (int position = length; position > 0; position--) {
+            cells[position] = cell;
+            cell = grid.neighbor(cell, sign(workspace.signs, cell));
+        }
+        assert cell == start;
+        cells[0] = cell;
+    }
+
+    /**
+     * @return Returns the direction back towards the start signposted at the cell.
+     */
+    private static int sign(long[] signs, int cell) {
+        return (int) (signs[cell >>> 5] >>> ((cell & 31) << 1)) & 3;
+    }
+
+    /**
+     * The reusable state of the searches of one thread.
+     */
+    private static final class Workspace {
+        private int[] queue = new int[0];
+        // One bit per cell, only the cells queued by the last search are ever set.
+        private long[] seen = new long[0];
+        // Two bits per cell holding the direction back towards the start, left as they are between searches as they are only read for cells seen.
+        private long[] signs = new long[0];
+        // The number of cells queued, passages expanded and the peak frontier of the last search.
+        private int queued;
+        private long expanded;
+        private int peakFrontier;
+
+        /**
+         * Grows the arrays to hold a grid of the given size, keeping them if they are already large enough.
+         */
+        void ensureCapacity(int cells) {
+            if (queue.length < cells) {
+                queue = new int[cells];
+                seen = new long[(cells + 63) >>> 6];
+                signs = new long[(cells + 31) >>> 5];
+            }
+        }
+
+        /**
+         * Clears the seen flags of the last search, in time proportional to the cells it queued.
+         */
+        void clear() {
+            for (int position = 0; position < queued; position++) {
+                seen[queue[position] >>> 6] = 0;
+            }
+            queued = 0;
+        }
+    }
+}